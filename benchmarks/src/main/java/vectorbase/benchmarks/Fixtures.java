@@ -0,0 +1,57 @@
+package vectorbase.benchmarks;
+
+import vectorbase.matrices.Matrix;
+import vectorbase.matrices.SquareMatrix;
+import vectorbase.matrices.vectors.Vector;
+import vectorbase.matrices.vectors.VectorSet;
+
+import java.util.Random;
+
+// Seeded inputs, so every run measures the same matrices.
+final class Fixtures {
+    private Fixtures() {}
+
+    static double[] randomArray(Random random, int length) {
+        double[] array = new double[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = random.nextDouble() * 2 - 1;
+        }
+
+        return array;
+    }
+
+    // Diagonally dominant, so it is always invertible.
+    static SquareMatrix invertibleMatrix(int n, long seed) {
+        Random random = new Random(seed);
+
+        double[] data = randomArray(random, n * n);
+        for (int i = 0; i < n; i++) {
+            data[i * n + i] += n;
+        }
+
+        return SquareMatrix.wrap(data, n);
+    }
+
+    // n x (n + n / 2 + 1): has a null space.
+    static Matrix wideMatrix(int n, long seed) {
+        Random random = new Random(seed);
+        int columnCount = n + n / 2 + 1;
+
+        return Matrix.wrap(randomArray(random, n * columnCount), n, columnCount);
+    }
+
+    static Vector vector(int n, long seed) {
+        return new Vector(randomArray(new Random(seed), n));
+    }
+
+    static VectorSet vectorSet(int n, long seed) {
+        Random random = new Random(seed);
+
+        Vector[] vectors = new Vector[n];
+        for (int i = 0; i < n; i++) {
+            vectors[i] = new Vector(randomArray(random, n));
+        }
+
+        return new VectorSet(vectors);
+    }
+}
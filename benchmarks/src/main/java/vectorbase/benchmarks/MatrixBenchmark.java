@@ -0,0 +1,101 @@
+package vectorbase.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import vectorbase.matrices.GramAccumulator;
+import vectorbase.matrices.Matrix;
+import vectorbase.matrices.Solution;
+import vectorbase.matrices.SquareMatrix;
+import vectorbase.matrices.vectors.Vector;
+import vectorbase.matrices.vectors.VectorSet;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Dvectorbase.cache.size=0"})
+public class MatrixBenchmark {
+    @Param({"4", "16", "64", "256", "1024", "2048"})
+    public int size;
+
+    private SquareMatrix a;
+    private SquareMatrix b;
+    private Matrix wide;
+    private Vector v;
+
+    @Setup
+    public void setUp() {
+        a = Fixtures.invertibleMatrix(size, 1);
+        b = Fixtures.invertibleMatrix(size, 2);
+        wide = Fixtures.wideMatrix(size, 3);
+        v = Fixtures.vector(size, 4);
+    }
+
+    @Benchmark
+    public Matrix multiplyWith() {
+        return a.multiplyWith(b);
+    }
+
+    // 2A + 3B, times A: eagerly with two temporaries and their sum, lazily with one fused pass and one GEMM.
+    @Benchmark
+    public Matrix scaleAddMultiply() {
+        return a.scaleWith(2).add(b.scaleWith(3)).multiplyWith(a);
+    }
+
+    @Benchmark
+    public Matrix scaleAddMultiplyLazy() {
+        return a.lazy().scaleWith(2).add(b.lazy().scaleWith(3)).multiplyWith(a).evaluate();
+    }
+
+    // The transpose is a view, read in place by the multiplication.
+    @Benchmark
+    public Matrix transposeMultiply() {
+        return a.getTranspose().multiplyWith(a);
+    }
+
+    // A^T A as above, upper triangle only, along with A^T v.
+    @Benchmark
+    public GramAccumulator gramAccumulator() {
+        GramAccumulator gram = new GramAccumulator(size);
+        gram.addAll(a, v);
+
+        return gram;
+    }
+
+    @Benchmark
+    public Matrix getRowReducedEchelonForm() {
+        return a.getRowReducedEchelonForm();
+    }
+
+    @Benchmark
+    public Solution solve() {
+        return a.solve(v);
+    }
+
+    @Benchmark
+    public Solution solveUnderdetermined() {
+        return wide.solve(v);
+    }
+
+    @Benchmark
+    public VectorSet getNullSpace() {
+        return wide.getNullSpace();
+    }
+
+    @Benchmark
+    public Matrix[] getLUFactorization() {
+        return a.getLUFactorization();
+    }
+}
@@ -0,0 +1,68 @@
+package vectorbase.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import vectorbase.matrices.SquareMatrix;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Dvectorbase.cache.size=0"})
+public class SquareMatrixBenchmark {
+    @Param({"4", "16", "64", "256", "1024", "2048"})
+    public int size;
+
+    private SquareMatrix a;
+
+    @Setup
+    public void setUp() {
+        a = Fixtures.invertibleMatrix(size, 1);
+    }
+
+    @Benchmark
+    public double determinantFast() {
+        return a.determinantFast();
+    }
+
+    @Benchmark
+    public SquareMatrix inverse() {
+        return a.inverse();
+    }
+
+    // Cofactor expansion is O(n!), so it has its own sizes.
+    @State(Scope.Benchmark)
+    public static class CofactorState {
+        @Param({"4", "6", "8", "10"})
+        public int size;
+
+        SquareMatrix a;
+
+        @Setup
+        public void setUp() {
+            a = Fixtures.invertibleMatrix(size, 1);
+        }
+    }
+
+    @Benchmark
+    public double determinantOriginal(CofactorState state) {
+        return state.a.determinantOriginal();
+    }
+
+    @Benchmark
+    public double determinantFastOnCofactorSizes(CofactorState state) {
+        return state.a.determinantFast();
+    }
+}
@@ -0,0 +1,56 @@
+package vectorbase.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import vectorbase.matrices.vectors.MutableVector;
+import vectorbase.matrices.vectors.Vector;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class VectorBenchmark {
+    @Param({"4", "16", "64", "256", "1024", "2048"})
+    public int size;
+
+    private Vector v;
+    private Vector w;
+    private MutableVector accumulator;
+
+    @Setup
+    public void setUp() {
+        v = Fixtures.vector(size, 6);
+        w = Fixtures.vector(size, 7);
+        accumulator = new MutableVector(size);
+    }
+
+    @Benchmark
+    public double innerProductWith() {
+        return v.innerProductWith(w);
+    }
+
+    @Benchmark
+    public Vector add() {
+        return v.add(w);
+    }
+
+    // The same update without allocating.
+    @Benchmark
+    public MutableVector axpyInPlace() {
+        accumulator.axpyInPlace(1e-9, w);
+        return accumulator;
+    }
+}
@@ -0,0 +1,68 @@
+package vectorbase.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import vectorbase.matrices.vectors.CoordinateTransform;
+import vectorbase.matrices.vectors.Vector;
+import vectorbase.matrices.vectors.VectorSet;
+
+import java.util.concurrent.TimeUnit;
+
+// size is both the number of vectors and their dimension.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Dvectorbase.cache.size=0"})
+public class VectorSetBenchmark {
+    @Param({"4", "16", "64", "256", "1024", "2048"})
+    public int size;
+
+    private VectorSet vectors;
+    private VectorSet otherVectors;
+    private CoordinateTransform transform;
+    private Vector v;
+
+    @Setup
+    public void setUp() {
+        vectors = Fixtures.vectorSet(size, 5);
+        otherVectors = Fixtures.vectorSet(size, 6);
+        transform = vectors.getTransformTo(otherVectors);
+        v = Fixtures.vector(size, 7);
+    }
+
+    @Benchmark
+    public VectorSet getBasis() {
+        return vectors.getBasis();
+    }
+
+    @Benchmark
+    public boolean isLinearlyIndependent() {
+        return vectors.isLinearlyIndependent();
+    }
+
+    @Benchmark
+    public Vector getRelativeCoordinatesOf() {
+        return vectors.getRelativeCoordinatesOf(v, otherVectors);
+    }
+
+    @Benchmark
+    public Vector coordinateTransform() {
+        return transform.apply(v);
+    }
+
+    @Benchmark
+    public VectorSet getOrthonormalBasis() {
+        return vectors.getOrthonormalBasis();
+    }
+}
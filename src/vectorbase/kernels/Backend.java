@@ -0,0 +1,15 @@
+package vectorbase.kernels;
+
+// Element loops shared by Vector and Matrix. Offsets and lengths are in elements.
+interface Backend {
+    double dot(double[] x, int xOffset, double[] y, int yOffset, int length);
+
+    // y += c * x
+    void axpy(double c, double[] x, int xOffset, double[] y, int yOffset, int length);
+
+    // out = c * x, out may be x.
+    void scale(double c, double[] x, int xOffset, double[] out, int outOffset, int length);
+
+    // out = x + y, out may be x or y.
+    void add(double[] x, double[] y, double[] out, int length);
+}
@@ -0,0 +1,61 @@
+package vectorbase.kernels;
+
+// Entry point of the element loops. The backend is chosen once, when this class is loaded:
+// SIMD if the jdk.incubator.vector module is available (run with --add-modules jdk.incubator.vector), scalar otherwise.
+// -Dvectorbase.simd=false forces the scalar loops, -Dvectorbase.simd=true fails fast if SIMD is not available.
+public final class Kernels {
+    private static final Backend BACKEND = selectBackend();
+
+    private Kernels() {}
+
+    private static Backend selectBackend() {
+        String property = System.getProperty("vectorbase.simd");
+        if ("false".equalsIgnoreCase(property)) return new ScalarBackend();
+
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (Backend) Class.forName("vectorbase.kernels.SimdBackend").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // falls back to the scalar loops
+            }
+        }
+
+        if ("true".equalsIgnoreCase(property)) throw new RuntimeException("SIMD backend is not available, add the jdk.incubator.vector module.");
+
+        return new ScalarBackend();
+    }
+
+    public static boolean isSimd() {
+        return !(BACKEND instanceof ScalarBackend);
+    }
+
+    public static double dot(double[] x, double[] y) {
+        return BACKEND.dot(x, 0, y, 0, x.length);
+    }
+
+    public static double dot(double[] x, int xOffset, double[] y, int yOffset, int length) {
+        return BACKEND.dot(x, xOffset, y, yOffset, length);
+    }
+
+    public static void axpy(double c, double[] x, int xOffset, double[] y, int yOffset, int length) {
+        BACKEND.axpy(c, x, xOffset, y, yOffset, length);
+    }
+
+    public static double[] scale(double c, double[] x) {
+        double[] out = new double[x.length];
+        BACKEND.scale(c, x, 0, out, 0, x.length);
+
+        return out;
+    }
+
+    public static void scale(double c, double[] x, int offset, int length) {
+        BACKEND.scale(c, x, offset, x, offset, length);
+    }
+
+    public static double[] add(double[] x, double[] y) {
+        double[] out = new double[x.length];
+        BACKEND.add(x, y, out, x.length);
+
+        return out;
+    }
+}
@@ -0,0 +1,34 @@
+package vectorbase.kernels;
+
+final class ScalarBackend implements Backend {
+    @Override
+    public double dot(double[] x, int xOffset, double[] y, int yOffset, int length) {
+        double result = 0;
+        for (int i = 0; i < length; i++) {
+            result += x[xOffset + i] * y[yOffset + i];
+        }
+
+        return result;
+    }
+
+    @Override
+    public void axpy(double c, double[] x, int xOffset, double[] y, int yOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            y[yOffset + i] += c * x[xOffset + i];
+        }
+    }
+
+    @Override
+    public void scale(double c, double[] x, int xOffset, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            out[outOffset + i] = c * x[xOffset + i];
+        }
+    }
+
+    @Override
+    public void add(double[] x, double[] y, double[] out, int length) {
+        for (int i = 0; i < length; i++) {
+            out[i] = x[i] + y[i];
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package vectorbase.kernels;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// Only loaded (by name) when the jdk.incubator.vector module is present.
+final class SimdBackend implements Backend {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public double dot(double[] x, int xOffset, double[] y, int yOffset, int length) {
+        DoubleVector sum = DoubleVector.zero(SPECIES);
+
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector vx = DoubleVector.fromArray(SPECIES, x, xOffset + i);
+            DoubleVector vy = DoubleVector.fromArray(SPECIES, y, yOffset + i);
+            sum = vx.fma(vy, sum);
+        }
+
+        double result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            result += x[xOffset + i] * y[yOffset + i];
+        }
+
+        return result;
+    }
+
+    @Override
+    public void axpy(double c, double[] x, int xOffset, double[] y, int yOffset, int length) {
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector vx = DoubleVector.fromArray(SPECIES, x, xOffset + i);
+            DoubleVector vy = DoubleVector.fromArray(SPECIES, y, yOffset + i);
+            vx.fma(DoubleVector.broadcast(SPECIES, c), vy).intoArray(y, yOffset + i);
+        }
+
+        for (; i < length; i++) {
+            y[yOffset + i] += c * x[xOffset + i];
+        }
+    }
+
+    @Override
+    public void scale(double c, double[] x, int xOffset, double[] out, int outOffset, int length) {
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, x, xOffset + i).mul(c).intoArray(out, outOffset + i);
+        }
+
+        for (; i < length; i++) {
+            out[outOffset + i] = c * x[xOffset + i];
+        }
+    }
+
+    @Override
+    public void add(double[] x, double[] y, double[] out, int length) {
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector vx = DoubleVector.fromArray(SPECIES, x, i);
+            DoubleVector vy = DoubleVector.fromArray(SPECIES, y, i);
+            vx.add(vy).intoArray(out, i);
+        }
+
+        for (; i < length; i++) {
+            out[i] = x[i] + y[i];
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package vectorbase.matrices;
+
+import java.io.Serial;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Solves 'count' independent n x n systems A x = b in one call, with the elimination of LUDecomposition.
+// The buffers are struct-of-arrays: element (i, j) of system s is at
+// matrices[(i * n + j) * count + s], and element i of its right-hand side / solution at
+// rightHandSides[i * count + s] / solutions[i * count + s].
+// Nothing is allocated per system; singular systems get SINGULAR in 'status' and NaN in 'solutions'.
+public final class BatchSolver {
+    public static final int SOLVED = 0;
+    public static final int SINGULAR = 1;
+
+    // Systems per task; a task allocates one scratch buffer and reuses it for all of them.
+    private static final int SYSTEMS_PER_TASK = 1024;
+
+    private BatchSolver() {}
+
+    public static void solve(double[] matrices, double[] rightHandSides, double[] solutions, int[] status, int n, int count) {
+        if (n <= 0 || count <= 0) throw new RuntimeException("Batch is empty.");
+        if (matrices.length != (long) n * n * count) throw new RuntimeException("Matrix buffer does not hold " + count + " systems of size " + n + ".");
+        if (rightHandSides.length != (long) n * count || solutions.length != (long) n * count) throw new RuntimeException("Vector buffers do not hold " + count + " vectors of dimension " + n + ".");
+        if (status.length != count) throw new RuntimeException("Status buffer does not hold " + count + " systems.");
+
+        BatchTask task = new BatchTask(matrices, rightHandSides, solutions, status, n, count, 0, count);
+
+        if (count <= SYSTEMS_PER_TASK) task.compute();
+        else ForkJoinPool.commonPool().invoke(task);
+    }
+
+    private static final class BatchTask extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final double[] matrices;
+        private final double[] rightHandSides;
+        private final double[] solutions;
+        private final int[] status;
+        private final int n;
+        private final int count;
+        private final int from;
+        private final int to;
+
+        BatchTask(double[] matrices, double[] rightHandSides, double[] solutions, int[] status, int n, int count, int from, int to) {
+            this.matrices = matrices;
+            this.rightHandSides = rightHandSides;
+            this.solutions = solutions;
+            this.status = status;
+            this.n = n;
+            this.count = count;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SYSTEMS_PER_TASK) {
+                int middle = from + (to - from) / 2;
+
+                invokeAll(
+                    new BatchTask(matrices, rightHandSides, solutions, status, n, count, from, middle),
+                    new BatchTask(matrices, rightHandSides, solutions, status, n, count, middle, to)
+                );
+                return;
+            }
+
+            double[] lu = new double[n * n];
+            double[] x = new double[n];
+            int[] permutation = new int[n];
+
+            for (int s = from; s < to; s++) {
+                solveOne(s, lu, x, permutation);
+            }
+        }
+
+        private void solveOne(int s, double[] lu, double[] x, int[] permutation) {
+            for (int e = 0; e < n * n; e++) {
+                lu[e] = matrices[e * count + s];
+            }
+
+            if (LUDecomposition.factor(lu, n, permutation) < 0) {
+                status[s] = SINGULAR;
+                for (int i = 0; i < n; i++) {
+                    solutions[i * count + s] = Double.NaN;
+                }
+                return;
+            }
+
+            for (int i = 0; i < n; i++) {
+                x[i] = rightHandSides[permutation[i] * count + s];
+            }
+
+            LUDecomposition.substitute(lu, n, x);
+
+            for (int i = 0; i < n; i++) {
+                solutions[i * count + s] = x[i];
+            }
+            status[s] = SOLVED;
+        }
+    }
+}
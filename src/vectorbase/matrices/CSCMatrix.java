@@ -0,0 +1,111 @@
+package vectorbase.matrices;
+
+import vectorbase.kernels.Kernels;
+import vectorbase.matrices.vectors.Vector;
+
+import java.util.Arrays;
+
+// Compressed sparse columns: column j holds rowIndices / values [columnPointers[j], columnPointers[j + 1]).
+public class CSCMatrix extends SparseMatrix {
+    // The arrays are not copied; row indices must be sorted within every column.
+    public CSCMatrix(int rowCount, int columnCount, int[] columnPointers, int[] rowIndices, double[] values) {
+        super(rowCount, columnCount, columnPointers, rowIndices, values, columnCount);
+    }
+
+    // Keeps only the non-zero elements of a dense matrix.
+    public static CSCMatrix fromDense(Matrix m) {
+        return CSRMatrix.fromDense(m.getTranspose()).getTranspose();
+    }
+
+    @Override
+    public double get(int row, int col) {
+        return find(col, row);
+    }
+
+    // Sparse matrix-vector product, column by column.
+    @Override
+    public Vector multiplyWith(Vector v) {
+        if (v.getDimension() != this.columnCount) throw new RuntimeException("Those cannot be multiplied.");
+
+        double[] y = new double[this.rowCount];
+        for (int j = 0; j < this.columnCount; j++) {
+            double x = v.get(j);
+            if (x == 0) continue;
+
+            for (int k = pointers[j]; k < pointers[j + 1]; k++) {
+                y[indices[k]] += values[k] * x;
+            }
+        }
+
+        return new Vector(y);
+    }
+
+    @Override
+    public void apply(double[] x, double[] y) {
+        Arrays.fill(y, 0, this.rowCount, 0);
+
+        for (int j = 0; j < this.columnCount; j++) {
+            if (x[j] == 0) continue;
+
+            for (int k = pointers[j]; k < pointers[j + 1]; k++) {
+                y[indices[k]] += values[k] * x[j];
+            }
+        }
+    }
+
+    // One sparse dot product per column.
+    @Override
+    public void applyTranspose(double[] x, double[] y) {
+        for (int j = 0; j < this.columnCount; j++) {
+            double sum = 0;
+            for (int k = pointers[j]; k < pointers[j + 1]; k++) {
+                sum += values[k] * x[indices[k]];
+            }
+            y[j] = sum;
+        }
+    }
+
+    // Sparse times dense: every element (i, j) adds row j of the dense matrix to row i of the result.
+    @Override
+    public Matrix multiplyWith(Matrix m) {
+        if (this.columnCount != m.getRowCount()) throw new RuntimeException("Those matrices cannot be multiplied.");
+
+        int p = m.getColumnCount();
+        double[] b = m.data();
+        double[] c = new double[this.rowCount * p];
+
+        for (int j = 0; j < this.columnCount; j++) {
+            for (int k = pointers[j]; k < pointers[j + 1]; k++) {
+                Kernels.axpy(values[k], b, j * p, c, indices[k] * p, p);
+            }
+        }
+
+        if (this.rowCount == p) return new SquareMatrix(p, c);
+
+        return new Matrix(this.rowCount, p, c);
+    }
+
+    // The same arrays read as compressed rows: no copy.
+    @Override
+    public CSRMatrix getTranspose() {
+        return new CSRMatrix(this.columnCount, this.rowCount, pointers, indices, values);
+    }
+
+    @Override
+    public CSRMatrix toCSR() {
+        double[] rowValues = new double[this.getNonZeroCount()];
+        int[][] compressed = transposeCompressed(this.columnCount, this.rowCount, pointers, indices, values, rowValues);
+
+        return new CSRMatrix(this.rowCount, this.columnCount, compressed[0], compressed[1], rowValues);
+    }
+
+    @Override
+    public CSCMatrix toCSC() {
+        return this;
+    }
+
+    @Override
+    public CSCMatrix scaleWith(double c) {
+        return new CSCMatrix(this.rowCount, this.columnCount, pointers, indices, Kernels.scale(c, values));
+    }
+}
@@ -0,0 +1,331 @@
+package vectorbase.matrices;
+
+import vectorbase.kernels.Kernels;
+import vectorbase.matrices.vectors.Vector;
+
+import java.util.Arrays;
+
+// Compressed sparse rows: row i holds columnIndices / values [rowPointers[i], rowPointers[i + 1]).
+public class CSRMatrix extends SparseMatrix {
+    // The arrays are not copied; column indices must be sorted within every row.
+    public CSRMatrix(int rowCount, int columnCount, int[] rowPointers, int[] columnIndices, double[] values) {
+        super(rowCount, columnCount, rowPointers, columnIndices, values, rowCount);
+    }
+
+    // Keeps only the non-zero elements of a dense matrix.
+    public static CSRMatrix fromDense(Matrix m) {
+        double[] data = m.data();
+        int columnCount = m.getColumnCount();
+
+        int nonZeroCount = 0;
+        for (double el : data) {
+            if (el != 0) nonZeroCount++;
+        }
+
+        int[] rowPointers = new int[m.getRowCount() + 1];
+        int[] columnIndices = new int[nonZeroCount];
+        double[] values = new double[nonZeroCount];
+
+        int k = 0;
+        for (int i = 0; i < m.getRowCount(); i++) {
+            for (int j = 0; j < columnCount; j++) {
+                double el = data[i * columnCount + j];
+                if (el == 0) continue;
+
+                columnIndices[k] = j;
+                values[k] = el;
+                k++;
+            }
+            rowPointers[i + 1] = k;
+        }
+
+        return new CSRMatrix(m.getRowCount(), columnCount, rowPointers, columnIndices, values);
+    }
+
+    // Coordinate list to CSR; duplicate positions are summed.
+    public static CSRMatrix fromTriplets(int rowCount, int columnCount, int[] rows, int[] columns, double[] values) {
+        if (rows.length != columns.length || rows.length != values.length) throw new RuntimeException("Triplet arrays are not of the same length.");
+
+        // Bucket by column first, then by row: a stable two-pass sort leaves every row sorted by column.
+        int[] columnPointers = new int[columnCount + 1];
+        for (int column : columns) {
+            if (column < 0 || column >= columnCount) throw new RuntimeException("Column " + column + " is out of range.");
+            columnPointers[column + 1]++;
+        }
+        for (int j = 0; j < columnCount; j++) {
+            columnPointers[j + 1] += columnPointers[j];
+        }
+
+        int[] byColumn = new int[rows.length];
+        int[] next = columnPointers.clone();
+        for (int k = 0; k < rows.length; k++) {
+            byColumn[next[columns[k]]++] = k;
+        }
+
+        int[] rowPointers = new int[rowCount + 1];
+        for (int row : rows) {
+            if (row < 0 || row >= rowCount) throw new RuntimeException("Row " + row + " is out of range.");
+            rowPointers[row + 1]++;
+        }
+        for (int i = 0; i < rowCount; i++) {
+            rowPointers[i + 1] += rowPointers[i];
+        }
+
+        int[] sorted = new int[rows.length];
+        next = rowPointers.clone();
+        for (int k : byColumn) {
+            sorted[next[rows[k]]++] = k;
+        }
+
+        // Merge duplicates.
+        int[] compactPointers = new int[rowCount + 1];
+        int[] columnIndices = new int[rows.length];
+        double[] compactValues = new double[rows.length];
+
+        int position = 0;
+        for (int i = 0; i < rowCount; i++) {
+            for (int s = rowPointers[i]; s < rowPointers[i + 1]; s++) {
+                int k = sorted[s];
+
+                if (position > compactPointers[i] && columnIndices[position - 1] == columns[k]) {
+                    compactValues[position - 1] += values[k];
+                    continue;
+                }
+
+                columnIndices[position] = columns[k];
+                compactValues[position] = values[k];
+                position++;
+            }
+            compactPointers[i + 1] = position;
+        }
+
+        return new CSRMatrix(rowCount, columnCount, compactPointers, Arrays.copyOf(columnIndices, position), Arrays.copyOf(compactValues, position));
+    }
+
+    @Override
+    public double get(int row, int col) {
+        return find(row, col);
+    }
+
+    // Sparse matrix-vector product.
+    @Override
+    public Vector multiplyWith(Vector v) {
+        if (v.getDimension() != this.columnCount) throw new RuntimeException("Those cannot be multiplied.");
+
+        double[] x = toArray(v);
+        double[] y = new double[this.rowCount];
+        multiply(x, y);
+
+        return new Vector(y);
+    }
+
+    // y = this * x
+    void multiply(double[] x, double[] y) {
+        for (int i = 0; i < this.rowCount; i++) {
+            double sum = 0;
+            for (int k = pointers[i]; k < pointers[i + 1]; k++) {
+                sum += values[k] * x[indices[k]];
+            }
+            y[i] = sum;
+        }
+    }
+
+    @Override
+    public void apply(double[] x, double[] y) {
+        multiply(x, y);
+    }
+
+    // Every row scatters into y.
+    @Override
+    public void applyTranspose(double[] x, double[] y) {
+        Arrays.fill(y, 0, this.columnCount, 0);
+
+        for (int i = 0; i < this.rowCount; i++) {
+            if (x[i] == 0) continue;
+
+            for (int k = pointers[i]; k < pointers[i + 1]; k++) {
+                y[indices[k]] += values[k] * x[i];
+            }
+        }
+    }
+
+    // Sparse times dense: row i of the result is the sum of the dense rows picked by row i of this matrix.
+    @Override
+    public Matrix multiplyWith(Matrix m) {
+        if (this.columnCount != m.getRowCount()) throw new RuntimeException("Those matrices cannot be multiplied.");
+
+        int p = m.getColumnCount();
+        double[] b = m.data();
+        double[] c = new double[this.rowCount * p];
+
+        for (int i = 0; i < this.rowCount; i++) {
+            for (int k = pointers[i]; k < pointers[i + 1]; k++) {
+                Kernels.axpy(values[k], b, indices[k] * p, c, i * p, p);
+            }
+        }
+
+        if (this.rowCount == p) return new SquareMatrix(p, c);
+
+        return new Matrix(this.rowCount, p, c);
+    }
+
+    // Sparse times sparse, row by row with a dense accumulator (Gustavson).
+    public CSRMatrix multiplyWith(CSRMatrix m) {
+        if (this.columnCount != m.rowCount) throw new RuntimeException("Those matrices cannot be multiplied.");
+
+        int p = m.columnCount;
+        double[] accumulator = new double[p];
+        int[] marker = new int[p];
+        Arrays.fill(marker, -1);
+
+        int[] rowPointers = new int[this.rowCount + 1];
+        int[] columnIndices = new int[Math.max(16, this.getNonZeroCount() + m.getNonZeroCount())];
+        double[] result = new double[columnIndices.length];
+        int[] rowColumns = new int[p];
+
+        int position = 0;
+        for (int i = 0; i < this.rowCount; i++) {
+            int rowNonZeros = 0;
+
+            for (int k = pointers[i]; k < pointers[i + 1]; k++) {
+                double a = values[k];
+                int row = indices[k];
+
+                for (int l = m.pointers[row]; l < m.pointers[row + 1]; l++) {
+                    int j = m.indices[l];
+                    if (marker[j] != i) {
+                        marker[j] = i;
+                        accumulator[j] = 0;
+                        rowColumns[rowNonZeros++] = j;
+                    }
+                    accumulator[j] += a * m.values[l];
+                }
+            }
+
+            Arrays.sort(rowColumns, 0, rowNonZeros);
+
+            if (position + rowNonZeros > columnIndices.length) {
+                int capacity = Math.max(columnIndices.length * 2, position + rowNonZeros);
+                columnIndices = Arrays.copyOf(columnIndices, capacity);
+                result = Arrays.copyOf(result, capacity);
+            }
+
+            for (int s = 0; s < rowNonZeros; s++) {
+                int j = rowColumns[s];
+                if (accumulator[j] == 0) continue;
+
+                columnIndices[position] = j;
+                result[position] = accumulator[j];
+                position++;
+            }
+            rowPointers[i + 1] = position;
+        }
+
+        return new CSRMatrix(this.rowCount, p, rowPointers, Arrays.copyOf(columnIndices, position), Arrays.copyOf(result, position));
+    }
+
+    // The same arrays read as compressed columns: no copy.
+    @Override
+    public CSCMatrix getTranspose() {
+        return new CSCMatrix(this.columnCount, this.rowCount, pointers, indices, values);
+    }
+
+    @Override
+    public CSRMatrix toCSR() {
+        return this;
+    }
+
+    @Override
+    public CSCMatrix toCSC() {
+        double[] columnValues = new double[this.getNonZeroCount()];
+        int[][] compressed = transposeCompressed(this.rowCount, this.columnCount, pointers, indices, values, columnValues);
+
+        return new CSCMatrix(this.rowCount, this.columnCount, compressed[0], compressed[1], columnValues);
+    }
+
+    @Override
+    public Matrix toDense() {
+        double[] data = new double[this.rowCount * this.columnCount];
+        for (int i = 0; i < this.rowCount; i++) {
+            for (int k = pointers[i]; k < pointers[i + 1]; k++) {
+                data[i * this.columnCount + indices[k]] = values[k];
+            }
+        }
+
+        if (this.rowCount == this.columnCount) return new SquareMatrix(this.rowCount, data);
+
+        return new Matrix(this.rowCount, this.columnCount, data);
+    }
+
+    // Iterative solve (BiCGSTAB) of a square system, in O(nnz) per iteration.
+    public Solution solve(Vector v) {
+        if (this.rowCount != this.columnCount) throw new RuntimeException("Only square sparse systems can be solved.");
+        if (v.getDimension() != this.rowCount) throw new RuntimeException("Vector is not in the dimension of the matrix.");
+
+        IterativeSolution solution = new IterativeSolver(IterativeSolver.Method.BICGSTAB).solve(this, v);
+        if (!solution.converged()) throw new RuntimeException("Iterative solve did not converge.");
+
+        return solution.toSolution();
+    }
+
+    @Override
+    public CSRMatrix scaleWith(double c) {
+        return new CSRMatrix(this.rowCount, this.columnCount, pointers, indices, Kernels.scale(c, values));
+    }
+
+    public CSRMatrix add(CSRMatrix m) {
+        int[] rowPointers = new int[this.rowCount + 1];
+        int[] columnIndices = new int[this.getNonZeroCount() + m.getNonZeroCount()];
+        double[] result = new double[columnIndices.length];
+
+        int position = 0;
+        for (int i = 0; i < this.rowCount; i++) {
+            int k = pointers[i];
+            int l = m.pointers[i];
+
+            // Merge of two sorted rows.
+            while (k < pointers[i + 1] || l < m.pointers[i + 1]) {
+                int j1 = k < pointers[i + 1] ? indices[k] : Integer.MAX_VALUE;
+                int j2 = l < m.pointers[i + 1] ? m.indices[l] : Integer.MAX_VALUE;
+
+                double sum;
+                int j;
+                if (j1 == j2) {
+                    j = j1;
+                    sum = values[k++] + m.values[l++];
+                } else if (j1 < j2) {
+                    j = j1;
+                    sum = values[k++];
+                } else {
+                    j = j2;
+                    sum = m.values[l++];
+                }
+
+                if (sum == 0) continue;
+
+                columnIndices[position] = j;
+                result[position] = sum;
+                position++;
+            }
+            rowPointers[i + 1] = position;
+        }
+
+        return new CSRMatrix(this.rowCount, this.columnCount, rowPointers, Arrays.copyOf(columnIndices, position), Arrays.copyOf(result, position));
+    }
+
+    public double innerProductWith(CSRMatrix m) {
+        double result = 0;
+        for (int i = 0; i < this.rowCount; i++) {
+            int k = pointers[i];
+            int l = m.pointers[i];
+
+            while (k < pointers[i + 1] && l < m.pointers[i + 1]) {
+                if (indices[k] == m.indices[l]) result += values[k++] * m.values[l++];
+                else if (indices[k] < m.indices[l]) k++;
+                else l++;
+            }
+        }
+
+        return result;
+    }
+}
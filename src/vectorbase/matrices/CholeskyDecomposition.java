@@ -0,0 +1,288 @@
+package vectorbase.matrices;
+
+import vectorbase.kernels.Kernels;
+import vectorbase.matrices.vectors.Vector;
+
+import java.io.Serial;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// A = R^T R for a symmetric positive-definite A, with R upper triangular (R^T is the L of A = L L^T).
+// R is kept row-major in one n x n array, so that the factorization, both substitutions and the rank-1 updates
+// all work along contiguous rows. Only the upper triangle of A is read.
+public class CholeskyDecomposition {
+    // Rows factored per block; the rest of the matrix is then updated with the whole block at once.
+    private static final int BLOCK = 64;
+
+    // From this many remaining rows on, the update after a block runs on the common pool.
+    // Can be changed with -Dvectorbase.cholesky.parallel=<n>.
+    static final int PARALLEL_THRESHOLD = Integer.getInteger("vectorbase.cholesky.parallel", 256);
+    private static final int ROWS_PER_TASK = 16;
+
+    private final double[] r;
+    private final int n;
+    private final boolean positiveDefinite;
+
+    public CholeskyDecomposition(SquareMatrix m) {
+        this.n = m.getRowCount();
+        this.r = m.copyData();
+        this.positiveDefinite = factor(r, n);
+    }
+
+    private CholeskyDecomposition(double[] r, int n) {
+        this.n = n;
+        this.r = r;
+        this.positiveDefinite = true;
+    }
+
+    // Factors the upper triangle of a (n x n, row-major) in place into R and clears the strictly lower triangle.
+    // Returns false as soon as a pivot is not positive: the matrix is not positive definite.
+    static boolean factor(double[] a, int n) {
+        // Pivots below this are rounding residue of a singular matrix.
+        double largest = 0;
+        for (int i = 0; i < n; i++) {
+            largest = Math.max(largest, Math.abs(a[i * n + i]));
+        }
+        double tolerance = n * Math.ulp(largest);
+
+        for (int i = 1; i < n; i++) {
+            Arrays.fill(a, i * n, i * n + i, 0);
+        }
+
+        for (int k0 = 0; k0 < n; k0 += BLOCK) {
+            int k1 = Math.min(k0 + BLOCK, n);
+
+            // The rows of the block, one by one: row k becomes row k of R and updates the block rows below it.
+            for (int k = k0; k < k1; k++) {
+                double d = a[k * n + k];
+                if (!(d > tolerance)) return false; // NaN included
+
+                double pivot = Math.sqrt(d);
+                a[k * n + k] = pivot;
+                Kernels.scale(1 / pivot, a, k * n + k + 1, n - k - 1);
+
+                updateRow(a, n, k, k + 1, k1);
+            }
+
+            if (k1 == n) break;
+
+            // Every remaining row takes the updates of the whole block while it is in cache.
+            if (n - k1 >= PARALLEL_THRESHOLD) ForkJoinPool.commonPool().invoke(new UpdateTask(a, n, k0, k1, k1, n));
+            else updateRows(a, n, k0, k1, k1, n);
+        }
+
+        return true;
+    }
+
+    // Rows [from, to) of the trailing matrix minus R_ki * row k of R, for every block row k in [k0, k1).
+    private static void updateRows(double[] a, int n, int k0, int k1, int from, int to) {
+        for (int i = from; i < to; i++) {
+            for (int k = k0; k < k1; k++) {
+                double c = a[k * n + i];
+                if (c != 0) Kernels.axpy(-c, a, k * n + i, a, i * n + i, n - i);
+            }
+        }
+    }
+
+    // Rows [from, to) minus R_ki * row k of R, for a single row k.
+    private static void updateRow(double[] a, int n, int k, int from, int to) {
+        for (int i = from; i < to; i++) {
+            double c = a[k * n + i];
+            if (c != 0) Kernels.axpy(-c, a, k * n + i, a, i * n + i, n - i);
+        }
+    }
+
+    private static final class UpdateTask extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final double[] a;
+        private final int n;
+        private final int k0;
+        private final int k1;
+        private final int from;
+        private final int to;
+
+        UpdateTask(double[] a, int n, int k0, int k1, int from, int to) {
+            this.a = a;
+            this.n = n;
+            this.k0 = k0;
+            this.k1 = k1;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                updateRows(a, n, k0, k1, from, to);
+                return;
+            }
+
+            int middle = from + (to - from) / 2;
+            invokeAll(new UpdateTask(a, n, k0, k1, from, middle), new UpdateTask(a, n, k0, k1, middle, to));
+        }
+    }
+
+    public boolean isPositiveDefinite() {
+        return positiveDefinite;
+    }
+
+    public double determinant() {
+        double determinant = 1;
+        for (double pivot : pivots()) {
+            determinant *= pivot * pivot;
+        }
+
+        return determinant;
+    }
+
+    // log(det A), which does not overflow for large matrices.
+    public double logDeterminant() {
+        double sum = 0;
+        for (double pivot : pivots()) {
+            sum += Math.log(pivot);
+        }
+
+        return 2 * sum;
+    }
+
+    private double[] pivots() {
+        if (!positiveDefinite) throw new RuntimeException("Matrix is not positive definite.");
+
+        double[] pivots = new double[n];
+        for (int i = 0; i < n; i++) {
+            pivots[i] = r[i * n + i];
+        }
+
+        return pivots;
+    }
+
+    public Vector solve(Vector v) {
+        double[] x = toArray(v);
+        solveInPlace(x, 1);
+
+        return new Vector(x);
+    }
+
+    // Every column of m is a right-hand side.
+    public Matrix solve(Matrix m) {
+        if (m.getRowCount() != n) throw new RuntimeException("Matrix does not have " + n + " rows.");
+
+        int k = m.getColumnCount();
+        double[] x = m.copyData();
+        solveInPlace(x, k);
+
+        if (n == k) return new SquareMatrix(n, x);
+
+        return new Matrix(n, k, x);
+    }
+
+    public SquareMatrix inverse() {
+        double[] x = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            x[i * n + i] = 1;
+        }
+
+        solveInPlace(x, n);
+
+        return new SquareMatrix(n, x);
+    }
+
+    // x is n x k. Forward substitution with R^T, then back substitution with R, row by row.
+    void solveInPlace(double[] x, int k) {
+        if (!positiveDefinite) throw new RuntimeException("Matrix is not positive definite.");
+
+        if (k == 1) {
+            for (int i = 0; i < n; i++) {
+                x[i] /= r[i * n + i];
+                Kernels.axpy(-x[i], r, i * n + i + 1, x, i + 1, n - i - 1);
+            }
+
+            for (int i = n - 1; i >= 0; i--) {
+                x[i] = (x[i] - Kernels.dot(r, i * n + i + 1, x, i + 1, n - i - 1)) / r[i * n + i];
+            }
+            return;
+        }
+
+        for (int i = 0; i < n; i++) {
+            Kernels.scale(1 / r[i * n + i], x, i * k, k);
+            for (int j = i + 1; j < n; j++) {
+                double el = r[i * n + j];
+                if (el != 0) Kernels.axpy(-el, x, i * k, x, j * k, k);
+            }
+        }
+
+        for (int i = n - 1; i >= 0; i--) {
+            for (int j = i + 1; j < n; j++) {
+                double el = r[i * n + j];
+                if (el != 0) Kernels.axpy(-el, x, j * k, x, i * k, k);
+            }
+            Kernels.scale(1 / r[i * n + i], x, i * k, k);
+        }
+    }
+
+    // The factorization of A + v v^T, in O(n^2) instead of refactoring: adding an observation.
+    public CholeskyDecomposition update(Vector v) {
+        return rankOne(v, false);
+    }
+
+    // The factorization of A - v v^T, in O(n^2): removing an observation.
+    public CholeskyDecomposition downdate(Vector v) {
+        return rankOne(v, true);
+    }
+
+    // Rotates v into R one row at a time; row k of R and the rest of v are both contiguous.
+    private CholeskyDecomposition rankOne(Vector v, boolean downdate) {
+        if (!positiveDefinite) throw new RuntimeException("Matrix is not positive definite.");
+
+        double[] x = toArray(v);
+        double[] updated = r.clone();
+
+        for (int k = 0; k < n; k++) {
+            if (x[k] == 0) continue;
+
+            double pivot = updated[k * n + k];
+            double squared = downdate ? (pivot - x[k]) * (pivot + x[k]) : pivot * pivot + x[k] * x[k];
+            if (!(squared > 0)) throw new RuntimeException("Downdated matrix is not positive definite.");
+
+            double newPivot = Math.sqrt(squared);
+            double c = newPivot / pivot;
+            double s = x[k] / pivot;
+            updated[k * n + k] = newPivot;
+
+            int offset = k * n + k + 1;
+            int length = n - k - 1;
+
+            // R_kj = (R_kj +- s x_j) / c, then x_j = c x_j - s R_kj.
+            Kernels.axpy(downdate ? -s : s, x, k + 1, updated, offset, length);
+            Kernels.scale(1 / c, updated, offset, length);
+            Kernels.scale(c, x, k + 1, length);
+            Kernels.axpy(-s, updated, offset, x, k + 1, length);
+        }
+
+        return new CholeskyDecomposition(updated, n);
+    }
+
+    private double[] toArray(Vector v) {
+        if (v.getDimension() != n) throw new RuntimeException("Vector is not in the dimension of the matrix.");
+
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = v.get(i);
+        }
+
+        return x;
+    }
+
+    // Lower triangular, A = L L^T.
+    public SquareMatrix getL() {
+        return new SquareMatrix(n, MatrixMultiplier.transpose(r, n, n));
+    }
+
+    // Upper triangular, A = R^T R.
+    public SquareMatrix getR() {
+        return new SquareMatrix(n, r.clone());
+    }
+}
@@ -0,0 +1,109 @@
+package vectorbase.matrices;
+
+import vectorbase.kernels.Kernels;
+import vectorbase.matrices.vectors.Vector;
+
+// Cofactor expansion without building minors, and the adjugate from a single factorization.
+final class CofactorExpansion {
+    // Up to this size the Laplace expansion is memoized (2^n sub-determinants); above it, elimination is used.
+    static final int LAPLACE_LIMIT = 20;
+
+    private CofactorExpansion() {}
+
+    // Laplace expansion along the first row, recursively, as the plain recursion does it, but every sub-determinant
+    // is computed once. The minor reached after expanding along rows 0 .. n - c - 1 only depends on the set of
+    // c columns left, so minors[mask] is the determinant of the last bitCount(mask) rows and the columns in mask.
+    // O(2^n * n) instead of O(n!).
+    static double determinant(double[] a, int n) {
+        double[] minors = new double[1 << n];
+        for (int j = 0; j < n; j++) {
+            minors[1 << j] = a[(n - 1) * n + j];
+        }
+
+        for (int mask = 3; mask < minors.length; mask++) {
+            if ((mask & (mask - 1)) == 0) continue;
+
+            int row = n - Integer.bitCount(mask);
+
+            double determinant = 0;
+            int position = 0;
+            for (int bits = mask; bits != 0; bits &= bits - 1) {
+                int j = Integer.numberOfTrailingZeros(bits);
+
+                double cofactor = (position % 2 == 0 ? 1 : -1) * minors[mask ^ (1 << j)];
+                determinant += cofactor * a[row * n + j];
+                position++;
+            }
+
+            minors[mask] = determinant;
+        }
+
+        return minors[minors.length - 1];
+    }
+
+    // adj(A) = det(A) A^-1 from one LU when A is non-singular.
+    // Otherwise adj(A) is 0 for rank < n - 1, and for rank n - 1 the rank-1 matrix read off a pivoted QR:
+    // with AP = QR and the last pivot of R zero, adj(R) = det(R11) x e_n^T where Rx = 0, x_n = 1,
+    // so adj(A) = det(P) det(Q) det(R11) (Px) (Q e_n)^T.
+    static SquareMatrix adjugate(SquareMatrix m) {
+        int n = m.getRowCount();
+        if (n == 1) return new SquareMatrix(1, new double[] {1});
+
+        LUDecomposition lu = m.getLUDecomposition();
+        if (!lu.isSingular()) {
+            double[] inverse = lu.inverse().data();
+            Kernels.scale(lu.determinant(), inverse, 0, inverse.length);
+
+            return new SquareMatrix(n, inverse);
+        }
+
+        double[] adjugate = new double[n * n];
+
+        QRDecomposition qr = new QRDecomposition(m);
+        if (qr.getRank() < n - 1) return new SquareMatrix(n, adjugate);
+
+        double[] r = qr.getR().data();
+        double[] x = new double[n];
+        x[n - 1] = 1;
+
+        double scale = qr.qDeterminant() * permutationSign(qr.getPivots());
+        for (int i = n - 2; i >= 0; i--) {
+            x[i] = -Kernels.dot(r, i * n + i + 1, x, i + 1, n - i - 1) / r[i * n + i];
+            scale *= r[i * n + i];
+        }
+
+        double[] e = new double[n];
+        e[n - 1] = 1;
+        Vector q = qr.applyQ(new Vector(e));
+
+        int[] pivots = qr.getPivots();
+        for (int k = 0; k < n; k++) {
+            int row = pivots[k] * n;
+            for (int j = 0; j < n; j++) {
+                adjugate[row + j] = scale * x[k] * q.get(j);
+            }
+        }
+
+        return new SquareMatrix(n, adjugate);
+    }
+
+    // (-1)^(n - number of cycles)
+    private static int permutationSign(int[] permutation) {
+        boolean[] visited = new boolean[permutation.length];
+
+        int sign = 1;
+        for (int i = 0; i < permutation.length; i++) {
+            if (visited[i]) continue;
+
+            int length = 0;
+            for (int j = i; !visited[j]; j = permutation[j]) {
+                visited[j] = true;
+                length++;
+            }
+
+            if (length % 2 == 0) sign = -sign;
+        }
+
+        return sign;
+    }
+}
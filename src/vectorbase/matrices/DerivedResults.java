@@ -0,0 +1,112 @@
+package vectorbase.matrices;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+// Results derived from an immutable matrix (transpose, echelon forms, factorizations, determinant, inverse), computed
+// on first use and reused afterwards. A result is published once: threads that race on the first use may each
+// compute it, but all of them get the one that was stored first.
+// By default every matrix keeps its own results for as long as it lives. With -Dvectorbase.cache.size=<n> they are
+// kept in one cache shared by all matrices instead, holding the n most recently used results; -Dvectorbase.cache.size=0
+// turns caching off.
+final class DerivedResults {
+    enum Key {
+        TRANSPOSE,
+        ECHELON_FORM,
+        ROW_REDUCED_ECHELON_FORM,
+        RANK_PROFILE,
+        LU_FACTORIZATION,
+        LU_DECOMPOSITION,
+        CHOLESKY_DECOMPOSITION,
+        DETERMINANT,
+        INVERSE
+    }
+
+    // -1 when the results are kept on the matrices.
+    static final int CACHE_SIZE = Integer.getInteger("vectorbase.cache.size", -1);
+
+    // Stands for a null result (e.g. no Cholesky factorization), which is a result too.
+    private static final Object NONE = new Object();
+
+    // Least recently used first. The entries hold their matrices, so at most CACHE_SIZE matrices are kept alive by it.
+    private static final Map<Entry, Object> SHARED = CACHE_SIZE <= 0 ? null : new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Entry, Object> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final AtomicReferenceArray<Object> values = new AtomicReferenceArray<>(Key.values().length);
+
+    @SuppressWarnings("unchecked")
+    static <T> T get(Matrix m, Key key, Supplier<T> compute) {
+        if (CACHE_SIZE == 0 || !m.cachesDerivedResults()) return compute.get();
+
+        Object value = peekValue(m, key);
+        if (value == null) value = store(m, key, orNone(compute.get()));
+
+        return value == NONE ? null : (T) value;
+    }
+
+    // The result if it was already computed, null otherwise.
+    @SuppressWarnings("unchecked")
+    static <T> T peek(Matrix m, Key key) {
+        if (CACHE_SIZE == 0 || !m.cachesDerivedResults()) return null;
+
+        Object value = peekValue(m, key);
+        return value == NONE ? null : (T) value;
+    }
+
+    private static Object peekValue(Matrix m, Key key) {
+        if (SHARED != null) {
+            synchronized (SHARED) {
+                return SHARED.get(new Entry(m, key));
+            }
+        }
+
+        DerivedResults results = m.derivedResults();
+        return results == null ? null : results.values.get(key.ordinal());
+    }
+
+    // Returns the value that ends up stored: 'value', or the one another thread stored first.
+    private static Object store(Matrix m, Key key, Object value) {
+        if (SHARED != null) {
+            synchronized (SHARED) {
+                Object stored = SHARED.putIfAbsent(new Entry(m, key), value);
+                return stored == null ? value : stored;
+            }
+        }
+
+        AtomicReferenceArray<Object> values = m.createDerivedResults().values;
+        if (values.compareAndSet(key.ordinal(), null, value)) return value;
+
+        return values.get(key.ordinal());
+    }
+
+    private static Object orNone(Object value) {
+        return value == null ? NONE : value;
+    }
+
+    // A matrix and one of its results, by identity: equal matrices are still different cache entries.
+    private static final class Entry {
+        private final Matrix matrix;
+        private final Key key;
+
+        Entry(Matrix matrix, Key key) {
+            this.matrix = matrix;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entry e && e.matrix == this.matrix && e.key == this.key;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(matrix) * 31 + key.ordinal();
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package vectorbase.matrices;
+
+import vectorbase.VectorBase;
+import vectorbase.matrices.vectors.Vector;
+
+import java.util.Objects;
+
+// Stores only the n diagonal elements. Products, determinant, inverse and solve are O(n) or O(n * columns);
+// the dense array is only built for the operations that are not short-circuited.
+public class DiagonalMatrix extends SquareMatrix {
+    private final double[] diagonal;
+    private volatile double[] dense;
+
+    public DiagonalMatrix(double... diagonal) {
+        super(diagonal.length);
+        this.diagonal = diagonal.clone();
+    }
+
+    // For IdentityMatrix, which does not store its diagonal either.
+    DiagonalMatrix(int n) {
+        super(n);
+        this.diagonal = null;
+    }
+
+    double getDiagonalElement(int i) {
+        return this.diagonal[i];
+    }
+
+    public double[] getDiagonal() {
+        double[] diagonal = new double[this.getRowCount()];
+        for (int i = 0; i < diagonal.length; i++) {
+            diagonal[i] = getDiagonalElement(i);
+        }
+
+        return diagonal;
+    }
+
+    private boolean hasZeroOnDiagonal() {
+        for (int i = 0; i < this.getRowCount(); i++) {
+            if (getDiagonalElement(i) == 0) return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    double[] data() {
+        double[] data = this.dense;
+        if (data == null) {
+            int n = this.getRowCount();
+            data = new double[n * n];
+            for (int i = 0; i < n; i++) {
+                data[i * n + i] = getDiagonalElement(i);
+            }
+
+            this.dense = data;
+        }
+
+        return data;
+    }
+
+    @Override
+    public double get(int row, int col) {
+        Objects.checkIndex(row, this.getRowCount());
+        Objects.checkIndex(col, this.getColumnCount());
+
+        return row == col ? getDiagonalElement(row) : 0;
+    }
+
+    @Override
+    public double[] getRow(int row) {
+        double[] res = new double[this.getColumnCount()];
+        res[row] = getDiagonalElement(row);
+
+        return res;
+    }
+
+    @Override
+    public double[] getColumn(int col) {
+        return getRow(col);
+    }
+
+    // D * M scales the rows of M.
+    @Override
+    public void apply(double[] x, double[] y) {
+        for (int i = 0; i < this.getRowCount(); i++) {
+            y[i] = getDiagonalElement(i) * x[i];
+        }
+    }
+
+    @Override
+    public void applyTranspose(double[] x, double[] y) {
+        apply(x, y);
+    }
+
+    @Override
+    public Matrix multiplyWith(Matrix m) {
+        if (this.getColumnCount() != m.getRowCount()) throw new RuntimeException("Those matrices cannot be multiplied.");
+
+        if (m instanceof IdentityMatrix) return this;
+        if (ZeroMatrix.isZero(m)) return ZeroMatrix.product(this.getRowCount(), m.getColumnCount());
+
+        int n = this.getRowCount();
+        if (m instanceof DiagonalMatrix d) {
+            double[] product = new double[n];
+            for (int i = 0; i < n; i++) {
+                product[i] = getDiagonalElement(i) * d.getDiagonalElement(i);
+            }
+
+            return new DiagonalMatrix(product);
+        }
+        // Streamed, so that m is never copied to the heap.
+        if (m instanceof OffHeapMatrix o) return o.scaleRowsBy(this);
+
+        int p = m.getColumnCount();
+        double[] b = m.data();
+        double[] res = new double[n * p];
+        for (int i = 0; i < n; i++) {
+            double el = getDiagonalElement(i);
+            for (int j = 0; j < p; j++) {
+                res[i * p + j] = el * b[i * p + j];
+            }
+        }
+
+        if (n == p) return new SquareMatrix(n, res);
+
+        return new Matrix(n, p, res);
+    }
+
+    // A * D scales the columns of A.
+    Matrix scaleColumnsOf(Matrix a) {
+        if (a instanceof OffHeapMatrix o) return o.scaleColumnsBy(this);
+
+        int n = a.getRowCount();
+        int p = this.getColumnCount();
+        double[] data = a.data();
+        double[] res = new double[n * p];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < p; j++) {
+                res[i * p + j] = data[i * p + j] * getDiagonalElement(j);
+            }
+        }
+
+        if (n == p) return new SquareMatrix(n, res);
+
+        return new Matrix(n, p, res);
+    }
+
+    @Override
+    public Matrix getTranspose() {
+        return this;
+    }
+
+    @Override
+    public double determinantFast() {
+        double determinant = 1;
+        for (int i = 0; i < this.getRowCount(); i++) {
+            determinant *= getDiagonalElement(i);
+        }
+
+        return determinant;
+    }
+
+    @Override
+    public double determinant() {
+        return determinantFast();
+    }
+
+    @Override
+    public SquareMatrix inverse() {
+        if (hasZeroOnDiagonal()) throw new RuntimeException("Matrix is not invertible.");
+
+        double[] inverse = new double[this.getRowCount()];
+        for (int i = 0; i < inverse.length; i++) {
+            inverse[i] = 1 / getDiagonalElement(i);
+        }
+
+        return new DiagonalMatrix(inverse);
+    }
+
+    @Override
+    public Solution solve(Vector v) {
+        if (v.getDimension() != this.getRowCount()) throw new RuntimeException("Vector is not in the dimension of the matrix.");
+        if (hasZeroOnDiagonal()) return super.solve(v);
+
+        double[] x = new double[this.getRowCount()];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = v.get(i) / getDiagonalElement(i);
+        }
+
+        return new Solution(new Vector(x), null);
+    }
+
+    @Override
+    public Matrix getRowReducedEchelonForm() {
+        if (hasZeroOnDiagonal()) return super.getRowReducedEchelonForm();
+
+        return new IdentityMatrix(this.getRowCount());
+    }
+
+    @Override
+    public double getTrace() {
+        double result = 0;
+        for (int i = 0; i < this.getRowCount(); i++) {
+            result += getDiagonalElement(i);
+        }
+
+        return result;
+    }
+
+    @Override
+    public boolean isSymmetric() {
+        return true;
+    }
+
+    @Override
+    public boolean isPositiveDefinite() {
+        for (int i = 0; i < this.getRowCount(); i++) {
+            if (!(getDiagonalElement(i) > 0)) return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean isIdentityMatrix() {
+        for (int i = 0; i < this.getRowCount(); i++) {
+            if (getDiagonalElement(i) != 1) return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public DiagonalMatrix scaleWith(double c) {
+        double[] scaled = getDiagonal();
+        for (int i = 0; i < scaled.length; i++) {
+            scaled[i] *= c;
+        }
+
+        return new DiagonalMatrix(scaled);
+    }
+
+    @Override
+    public Matrix add(VectorBase v) {
+        if (!(v instanceof DiagonalMatrix d)) return super.add(v);
+        if (this.getRowCount() != d.getRowCount()) throw new RuntimeException("Matrices are not in the same dimension.");
+        if (d instanceof SquareZeroMatrix) return this;
+
+        double[] sum = getDiagonal();
+        for (int i = 0; i < sum.length; i++) {
+            sum[i] += d.getDiagonalElement(i);
+        }
+
+        return new DiagonalMatrix(sum);
+    }
+}
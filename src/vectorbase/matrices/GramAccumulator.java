@@ -0,0 +1,163 @@
+package vectorbase.matrices;
+
+import vectorbase.kernels.Kernels;
+import vectorbase.matrices.vectors.Vector;
+
+import java.util.Arrays;
+
+// A^T A and A^T b built from the rows of A (and elements of b) as they arrive, in O(d^2) memory whatever the number
+// of rows. Only the upper triangle of A^T A is accumulated; getGramMatrix mirrors it.
+// Not thread-safe: give every worker its own accumulator and merge them.
+public class GramAccumulator {
+    // Batches of at least this many rows are added with tiled products instead of one rank-1 update per row.
+    private static final int BATCH_THRESHOLD = 16;
+    // Columns per tile of the batched update.
+    private static final int BLOCK = 128;
+
+    private final int dimension;
+    // Row-major d x d; only the upper triangle is kept up to date.
+    private final double[] gram;
+    private final double[] rightHandSide;
+    private long rowCount;
+
+    public GramAccumulator(int dimension) {
+        if (dimension <= 0) throw new RuntimeException("Dimension must be positive.");
+
+        this.dimension = dimension;
+        this.gram = new double[dimension * dimension];
+        this.rightHandSide = new double[dimension];
+    }
+
+    // A row of A with its element of b.
+    public void add(Vector row, double b) {
+        if (row.getDimension() != this.dimension) throw new RuntimeException("Row is not in the dimension of the accumulator.");
+
+        double[] x = new double[this.dimension];
+        for (int i = 0; i < this.dimension; i++) {
+            x[i] = row.get(i);
+        }
+
+        addRow(x, 0, b);
+        this.rowCount++;
+    }
+
+    // A row of A, for A^T A alone.
+    public void add(Vector row) {
+        add(row, 0);
+    }
+
+    // Every row of 'rows' with the matching element of b.
+    public void addAll(Matrix rows, Vector b) {
+        if (rows.getColumnCount() != this.dimension) throw new RuntimeException("Rows are not in the dimension of the accumulator.");
+        if (b != null && b.getDimension() != rows.getRowCount()) throw new RuntimeException("Vector does not have " + rows.getRowCount() + " elements.");
+
+        int k = rows.getRowCount();
+        double[] x = rows.data();
+
+        if (k < BATCH_THRESHOLD) {
+            for (int r = 0; r < k; r++) {
+                addRow(x, r * this.dimension, b == null ? 0 : b.get(r));
+            }
+        } else {
+            addBatch(x, k);
+            for (int r = 0; b != null && r < k; r++) {
+                Kernels.axpy(b.get(r), x, r * this.dimension, this.rightHandSide, 0, this.dimension);
+            }
+        }
+
+        this.rowCount += k;
+    }
+
+    public void addAll(Matrix rows) {
+        addAll(rows, null);
+    }
+
+    // Rank-1 update of the upper triangle with the row at x[offset..offset + d).
+    private void addRow(double[] x, int offset, double b) {
+        int d = this.dimension;
+        for (int i = 0; i < d; i++) {
+            double el = x[offset + i];
+            if (el == 0) continue;
+
+            Kernels.axpy(el, x, offset + i, this.gram, i * d + i, d - i);
+        }
+
+        if (b != 0) Kernels.axpy(b, x, offset, this.rightHandSide, 0, d);
+    }
+
+    // Rank-k update of the upper triangle with the k x d rows x: the tiles of X^T X on or above the diagonal only.
+    private void addBatch(double[] x, int k) {
+        int d = this.dimension;
+
+        // Row i of the transpose is column i of x, so that the columns of a tile are one contiguous copy.
+        double[] transposed = MatrixMultiplier.transpose(x, k, d);
+        double[] left = new double[Math.min(BLOCK, d) * k];
+        double[] right = new double[Math.min(BLOCK, d) * k];
+        double[] tile = new double[Math.min(BLOCK, d) * Math.min(BLOCK, d)];
+
+        for (int i0 = 0; i0 < d; i0 += BLOCK) {
+            int i1 = Math.min(i0 + BLOCK, d);
+            System.arraycopy(transposed, i0 * k, left, 0, (i1 - i0) * k);
+
+            for (int j0 = i0; j0 < d; j0 += BLOCK) {
+                int j1 = Math.min(j0 + BLOCK, d);
+                int width = j1 - j0;
+                System.arraycopy(transposed, j0 * k, right, 0, width * k);
+
+                Arrays.fill(tile, 0, (i1 - i0) * width, 0);
+                MatrixMultiplier.multiplyAdd(1, left, false, right, true, tile, i1 - i0, k, width);
+
+                // On a diagonal tile, the part left of the diagonal is skipped.
+                for (int i = i0; i < i1; i++) {
+                    int from = Math.max(j0, i);
+                    if (from < j1) Kernels.axpy(1, tile, (i - i0) * width + from - j0, this.gram, i * d + from, j1 - from);
+                }
+            }
+        }
+    }
+
+    // Adds what another accumulator (e.g. of another worker) has seen.
+    public void merge(GramAccumulator other) {
+        if (other.dimension != this.dimension) throw new RuntimeException("Accumulators are not in the same dimension.");
+
+        int d = this.dimension;
+        for (int i = 0; i < d; i++) {
+            Kernels.axpy(1, other.gram, i * d + i, this.gram, i * d + i, d - i);
+        }
+        Kernels.axpy(1, other.rightHandSide, 0, this.rightHandSide, 0, d);
+
+        this.rowCount += other.rowCount;
+    }
+
+    public int getDimension() {
+        return this.dimension;
+    }
+
+    public long getRowCount() {
+        return this.rowCount;
+    }
+
+    // A^T A so far, with both triangles filled in.
+    public SquareMatrix getGramMatrix() {
+        int d = this.dimension;
+        double[] full = this.gram.clone();
+        for (int i = 0; i < d; i++) {
+            for (int j = i + 1; j < d; j++) {
+                full[j * d + i] = full[i * d + j];
+            }
+        }
+
+        return new SquareMatrix(d, full);
+    }
+
+    // A^T b so far.
+    public Vector getRightHandSide() {
+        return new Vector(this.rightHandSide.clone());
+    }
+
+    // The normal equations A^T A x = A^T b, i.e. x minimizing |Ax - b| over the rows so far. With Cholesky when A has
+    // full column rank; otherwise the solution has a null space.
+    public Solution solve() {
+        return getGramMatrix().solve(getRightHandSide());
+    }
+}
@@ -1,18 +1,75 @@
 package vectorbase.matrices;
 
-public class IdentityMatrix extends SquareMatrix {
+import vectorbase.matrices.vectors.Vector;
+
+// Stores nothing but its size: I * A = A, and the determinant, inverse and solve are trivial.
+public class IdentityMatrix extends DiagonalMatrix {
     public IdentityMatrix(int n) {
-        super(createIdentityMatrix(n));
+        super(n);
+    }
+
+    @Override
+    double getDiagonalElement(int i) {
+        return 1;
+    }
+
+    @Override
+    public Matrix multiplyWith(Matrix m) {
+        if (this.getColumnCount() != m.getRowCount()) throw new RuntimeException("Those matrices cannot be multiplied.");
+        // An off-heap matrix can change, so the product cannot be the matrix itself.
+        if (m instanceof OffHeapMatrix o) return OffHeapMatrix.copyOf(o, o.isShared());
+        if (m.getRowCount() == m.getColumnCount()) return m.toSquareMatrix();
+
+        return m;
+    }
+
+    @Override
+    Matrix scaleColumnsOf(Matrix a) {
+        if (a instanceof OffHeapMatrix o) return OffHeapMatrix.copyOf(o, o.isShared());
+        if (a.getRowCount() == a.getColumnCount()) return a.toSquareMatrix();
+
+        return a;
+    }
+
+    @Override
+    public double determinantFast() {
+        return 1;
     }
 
-    // Static factory
-    private static double[][] createIdentityMatrix(int n) {
-        double[][] matrix = new double[n][n];
+    @Override
+    public SquareMatrix inverse() {
+        return this;
+    }
+
+    @Override
+    public Solution solve(Vector v) {
+        if (v.getDimension() != this.getRowCount()) throw new RuntimeException("Vector is not in the dimension of the matrix.");
+
+        return new Solution(v, null);
+    }
+
+    @Override
+    public Matrix getEchelonForm() {
+        return this;
+    }
 
-        for (int i = 0; i < n; i++) {
-            matrix[i][i] = 1;
-        }
+    @Override
+    public Matrix getRowReducedEchelonForm() {
+        return this;
+    }
+
+    @Override
+    public double getTrace() {
+        return this.getRowCount();
+    }
+
+    @Override
+    public boolean isIdentityMatrix() {
+        return true;
+    }
 
-        return matrix;
+    @Override
+    public IdentityMatrix toIdentityMatrix() {
+        return this;
     }
 }
@@ -0,0 +1,89 @@
+package vectorbase.matrices;
+
+import java.util.Arrays;
+
+// ILU(0): M = LU where L (unit lower) and U are computed by elimination restricted to the non-zero pattern of A,
+// so both fit in a copy of its values. Every fill-in outside the pattern is dropped.
+public class IncompleteLUPreconditioner implements Preconditioner {
+    private final int n;
+    private final int[] pointers;
+    private final int[] indices;
+    // L below the diagonal (without its unit diagonal), U on and above it.
+    private final double[] lu;
+    private final int[] diagonalPositions;
+
+    public IncompleteLUPreconditioner(CSRMatrix a) {
+        if (a.rowCount != a.columnCount) throw new RuntimeException("Only square matrices can be preconditioned.");
+
+        this.n = a.rowCount;
+        this.pointers = a.pointers;
+        this.indices = a.indices;
+        this.lu = a.values.clone();
+        this.diagonalPositions = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            diagonalPositions[i] = -1;
+            for (int k = pointers[i]; k < pointers[i + 1]; k++) {
+                if (indices[k] == i) diagonalPositions[i] = k;
+            }
+            if (diagonalPositions[i] < 0) throw new RuntimeException("Zero on the diagonal at row " + i + ".");
+        }
+
+        // Row by row (IKJ): row i is eliminated with the rows above it that it has a non-zero for.
+        int[] positions = new int[n];
+        Arrays.fill(positions, -1);
+
+        for (int i = 0; i < n; i++) {
+            for (int k = pointers[i]; k < pointers[i + 1]; k++) {
+                positions[indices[k]] = k;
+            }
+
+            for (int k = pointers[i]; k < pointers[i + 1] && indices[k] < i; k++) {
+                int row = indices[k];
+                double pivot = lu[diagonalPositions[row]];
+                if (pivot == 0) throw new RuntimeException("Zero pivot in the incomplete factorization at row " + row + ".");
+
+                double multiplier = lu[k] / pivot;
+                lu[k] = multiplier;
+
+                for (int l = diagonalPositions[row] + 1; l < pointers[row + 1]; l++) {
+                    int position = positions[indices[l]];
+                    if (position >= 0) lu[position] -= multiplier * lu[l];
+                }
+            }
+
+            for (int k = pointers[i]; k < pointers[i + 1]; k++) {
+                positions[indices[k]] = -1;
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (lu[diagonalPositions[i]] == 0) throw new RuntimeException("Zero pivot in the incomplete factorization at row " + i + ".");
+        }
+    }
+
+    public IncompleteLUPreconditioner(Matrix m) {
+        this(CSRMatrix.fromDense(m));
+    }
+
+    @Override
+    public void apply(double[] r, double[] z) {
+        // L y = r
+        for (int i = 0; i < n; i++) {
+            double sum = r[i];
+            for (int k = pointers[i]; k < diagonalPositions[i]; k++) {
+                sum -= lu[k] * z[indices[k]];
+            }
+            z[i] = sum;
+        }
+
+        // U z = y
+        for (int i = n - 1; i >= 0; i--) {
+            double sum = z[i];
+            for (int k = diagonalPositions[i] + 1; k < pointers[i + 1]; k++) {
+                sum -= lu[k] * z[indices[k]];
+            }
+            z[i] = sum / lu[diagonalPositions[i]];
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package vectorbase.matrices;
+
+import vectorbase.matrices.vectors.Vector;
+
+// The result of an iterative solve, converged or not: the last iterate, the iterations it took and |b - Ax| / |b|.
+public record IterativeSolution(Vector solutionVector, int iterations, double relativeResidual, boolean converged) {
+    public Solution toSolution() {
+        return new Solution(solutionVector, null);
+    }
+}
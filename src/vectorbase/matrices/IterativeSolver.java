@@ -0,0 +1,321 @@
+package vectorbase.matrices;
+
+import vectorbase.kernels.Kernels;
+import vectorbase.matrices.vectors.Vector;
+
+import java.util.Arrays;
+
+// Krylov solvers for A x = b that only touch A through LinearOperator products, so they work on sparse, structured
+// and matrix-free operators of any size. Every solve allocates its work vectors once; the iterations themselves
+// only run products, Kernels updates and the preconditioner.
+// Stops when |b - Ax| <= tolerance * |b|, or after maxIterations (the result then says it did not converge).
+public class IterativeSolver {
+    public enum Method {
+        // Symmetric positive-definite A (and preconditioner).
+        CONJUGATE_GRADIENT,
+        // Any non-singular A; restarted every 'restart' iterations.
+        GMRES,
+        // Any non-singular A, with short recurrences.
+        BICGSTAB
+    }
+
+    private final Method method;
+    private double tolerance = 1e-10;
+    // 0: max(100, 10 n)
+    private int maxIterations;
+    private int restart = 30;
+    private Preconditioner preconditioner;
+
+    public IterativeSolver(Method method) {
+        this.method = method;
+    }
+
+    public void setTolerance(double tolerance) {
+        if (!(tolerance > 0)) throw new RuntimeException("Tolerance must be positive.");
+        this.tolerance = tolerance;
+    }
+
+    public void setMaxIterations(int maxIterations) {
+        if (maxIterations <= 0) throw new RuntimeException("There must be at least one iteration.");
+        this.maxIterations = maxIterations;
+    }
+
+    // GMRES only: the size of the Krylov basis before it restarts.
+    public void setRestart(int restart) {
+        if (restart <= 0) throw new RuntimeException("Restart length must be positive.");
+        this.restart = restart;
+    }
+
+    // Null for none. Right preconditioning for GMRES and BiCGSTAB, so the residual tested is always that of A x = b.
+    public void setPreconditioner(Preconditioner preconditioner) {
+        this.preconditioner = preconditioner;
+    }
+
+    public IterativeSolution solve(LinearOperator a, Vector b) {
+        return solve(a, b, null);
+    }
+
+    // Warm start from an earlier solution, e.g. Solution.solutionVector() of a nearby system.
+    public IterativeSolution solve(LinearOperator a, Vector b, Vector initialGuess) {
+        int n = a.getRowCount();
+        if (a.getColumnCount() != n) throw new RuntimeException("Only square systems can be solved iteratively.");
+        if (b.getDimension() != n) throw new RuntimeException("Vector is not in the dimension of the matrix.");
+        if (initialGuess != null && initialGuess.getDimension() != n) throw new RuntimeException("Initial guess is not in the dimension of the matrix.");
+
+        double[] rhs = new double[n];
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            rhs[i] = b.get(i);
+            if (initialGuess != null) x[i] = initialGuess.get(i);
+        }
+
+        return solve(a, rhs, x);
+    }
+
+    // x holds the initial guess and is overwritten with the solution.
+    IterativeSolution solve(LinearOperator a, double[] b, double[] x) {
+        int n = b.length;
+        int limit = maxIterations > 0 ? maxIterations : Math.max(100, 10 * n);
+
+        double bNorm = norm(b);
+        if (bNorm == 0) return new IterativeSolution(new Vector(new double[n]), 0, 0, true);
+
+        return switch (method) {
+            case CONJUGATE_GRADIENT -> conjugateGradient(a, b, x, bNorm, limit);
+            case GMRES -> gmres(a, b, x, bNorm, limit);
+            case BICGSTAB -> biCGStab(a, b, x, bNorm, limit);
+        };
+    }
+
+    private IterativeSolution conjugateGradient(LinearOperator a, double[] b, double[] x, double bNorm, int limit) {
+        int n = b.length;
+        double[] r = residual(a, b, x);
+        double[] z = preconditioner == null ? r : new double[n];
+        double[] q = new double[n];
+
+        double residual = norm(r);
+        if (residual <= tolerance * bNorm) return result(x, 0, residual, bNorm);
+
+        if (preconditioner != null) preconditioner.apply(r, z);
+        double[] p = z.clone();
+        double rz = Kernels.dot(r, z);
+
+        for (int iteration = 1; iteration <= limit; iteration++) {
+            a.apply(p, q);
+            double pq = Kernels.dot(p, q);
+            // Not positive definite along p: CG cannot go on.
+            if (!(pq > 0)) return result(x, iteration - 1, residual, bNorm);
+
+            double alpha = rz / pq;
+            Kernels.axpy(alpha, p, 0, x, 0, n);
+            Kernels.axpy(-alpha, q, 0, r, 0, n);
+
+            residual = norm(r);
+            if (residual <= tolerance * bNorm) return result(x, iteration, residual, bNorm);
+
+            if (preconditioner != null) preconditioner.apply(r, z);
+            double rzNext = Kernels.dot(r, z);
+            double beta = rzNext / rz;
+            rz = rzNext;
+
+            // p = z + beta * p
+            Kernels.scale(beta, p, 0, n);
+            Kernels.axpy(1, z, 0, p, 0, n);
+        }
+
+        return result(x, limit, residual, bNorm);
+    }
+
+    private IterativeSolution biCGStab(LinearOperator a, double[] b, double[] x, double bNorm, int limit) {
+        int n = b.length;
+        double[] r = residual(a, b, x);
+        double[] rHat = r.clone();
+        double[] p = new double[n];
+        double[] v = new double[n];
+        double[] s = new double[n];
+        double[] t = new double[n];
+        // The preconditioned directions; without a preconditioner they are p and s themselves.
+        double[] pHat = preconditioner == null ? p : new double[n];
+        double[] sHat = preconditioner == null ? s : new double[n];
+
+        double residual = norm(r);
+        if (residual <= tolerance * bNorm) return result(x, 0, residual, bNorm);
+
+        double rho = 1;
+        double alpha = 1;
+        double omega = 1;
+
+        for (int iteration = 1; iteration <= limit; iteration++) {
+            double rhoNext = Kernels.dot(rHat, r);
+            if (rhoNext == 0) return result(x, iteration - 1, residual, bNorm);
+
+            double beta = (rhoNext / rho) * (alpha / omega);
+            rho = rhoNext;
+
+            // p = r + beta * (p - omega * v)
+            for (int i = 0; i < n; i++) {
+                p[i] = r[i] + beta * (p[i] - omega * v[i]);
+            }
+
+            if (preconditioner != null) preconditioner.apply(p, pHat);
+            a.apply(pHat, v);
+            alpha = rho / Kernels.dot(rHat, v);
+
+            // s = r - alpha * v
+            for (int i = 0; i < n; i++) {
+                s[i] = r[i] - alpha * v[i];
+            }
+
+            residual = norm(s);
+            if (residual <= tolerance * bNorm) {
+                Kernels.axpy(alpha, pHat, 0, x, 0, n);
+                return result(x, iteration, residual, bNorm);
+            }
+
+            if (preconditioner != null) preconditioner.apply(s, sHat);
+            a.apply(sHat, t);
+            double tt = Kernels.dot(t, t);
+            if (tt == 0) {
+                Kernels.axpy(alpha, pHat, 0, x, 0, n);
+                return result(x, iteration, residual, bNorm);
+            }
+            omega = Kernels.dot(t, s) / tt;
+
+            // x += alpha * pHat + omega * sHat, r = s - omega * t
+            Kernels.axpy(alpha, pHat, 0, x, 0, n);
+            Kernels.axpy(omega, sHat, 0, x, 0, n);
+            for (int i = 0; i < n; i++) {
+                r[i] = s[i] - omega * t[i];
+            }
+
+            residual = norm(r);
+            if (residual <= tolerance * bNorm || omega == 0) return result(x, iteration, residual, bNorm);
+        }
+
+        return result(x, limit, residual, bNorm);
+    }
+
+    // GMRES(restart): Arnoldi with modified Gram-Schmidt, Givens rotations keeping the least-squares problem
+    // triangular, so the residual norm is known at every step without forming x.
+    private IterativeSolution gmres(LinearOperator a, double[] b, double[] x, double bNorm, int limit) {
+        int n = b.length;
+        int m = Math.min(restart, n);
+
+        double[] basis = new double[(m + 1) * n];
+        double[] h = new double[(m + 1) * m];
+        double[] cosines = new double[m];
+        double[] sines = new double[m];
+        double[] g = new double[m + 1];
+        double[] y = new double[m];
+        double[] w = new double[n];
+        double[] z = preconditioner == null ? null : new double[n];
+        double[] r = new double[n];
+
+        int iterations = 0;
+        double residual;
+
+        while (true) {
+            residual(a, b, x, r);
+            residual = norm(r);
+            if (residual <= tolerance * bNorm || iterations >= limit) return result(x, iterations, residual, bNorm);
+
+            System.arraycopy(r, 0, basis, 0, n);
+            Kernels.scale(1 / residual, basis, 0, n);
+            Arrays.fill(g, 0);
+            g[0] = residual;
+
+            int k = 0;
+            while (k < m && iterations < limit) {
+                // w = A M^-1 v_k
+                if (preconditioner == null) {
+                    System.arraycopy(basis, k * n, r, 0, n);
+                } else {
+                    System.arraycopy(basis, k * n, w, 0, n);
+                    preconditioner.apply(w, r);
+                }
+                a.apply(r, w);
+
+                for (int i = 0; i <= k; i++) {
+                    double c = Kernels.dot(basis, i * n, w, 0, n);
+                    h[i * m + k] = c;
+                    Kernels.axpy(-c, basis, i * n, w, 0, n);
+                }
+                double next = norm(w);
+                h[(k + 1) * m + k] = next;
+
+                // The previous rotations on the new column, then the one that zeroes its subdiagonal element.
+                for (int i = 0; i < k; i++) {
+                    double upper = h[i * m + k];
+                    double lower = h[(i + 1) * m + k];
+                    h[i * m + k] = cosines[i] * upper + sines[i] * lower;
+                    h[(i + 1) * m + k] = -sines[i] * upper + cosines[i] * lower;
+                }
+
+                double diagonal = h[k * m + k];
+                double radius = Math.hypot(diagonal, next);
+                cosines[k] = radius == 0 ? 1 : diagonal / radius;
+                sines[k] = radius == 0 ? 0 : next / radius;
+                h[k * m + k] = radius;
+                h[(k + 1) * m + k] = 0;
+
+                g[k + 1] = -sines[k] * g[k];
+                g[k] = cosines[k] * g[k];
+
+                k++;
+                iterations++;
+
+                // Converged, or the Krylov space is invariant (then the solution is exact in it).
+                if (Math.abs(g[k]) <= tolerance * bNorm || next == 0) break;
+
+                System.arraycopy(w, 0, basis, k * n, n);
+                Kernels.scale(1 / next, basis, k * n, n);
+            }
+
+            // H y = g, then x += M^-1 (V y).
+            for (int i = k - 1; i >= 0; i--) {
+                double sum = g[i];
+                for (int j = i + 1; j < k; j++) {
+                    sum -= h[i * m + j] * y[j];
+                }
+                y[i] = sum / h[i * m + i];
+            }
+
+            Arrays.fill(r, 0);
+            for (int i = 0; i < k; i++) {
+                Kernels.axpy(y[i], basis, i * n, r, 0, n);
+            }
+
+            if (preconditioner == null) {
+                Kernels.axpy(1, r, 0, x, 0, n);
+            } else {
+                preconditioner.apply(r, z);
+                Kernels.axpy(1, z, 0, x, 0, n);
+            }
+        }
+    }
+
+    private static double[] residual(LinearOperator a, double[] b, double[] x) {
+        double[] r = new double[b.length];
+        residual(a, b, x, r);
+
+        return r;
+    }
+
+    // r = b - A x
+    private static void residual(LinearOperator a, double[] b, double[] x, double[] r) {
+        a.apply(x, r);
+        for (int i = 0; i < b.length; i++) {
+            r[i] = b[i] - r[i];
+        }
+    }
+
+    private static double norm(double[] x) {
+        return Math.sqrt(Kernels.dot(x, x));
+    }
+
+    private IterativeSolution result(double[] x, int iterations, double residual, double bNorm) {
+        double relative = residual / bNorm;
+
+        return new IterativeSolution(new Vector(x), iterations, relative, relative <= tolerance);
+    }
+}
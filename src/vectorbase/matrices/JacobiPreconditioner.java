@@ -0,0 +1,42 @@
+package vectorbase.matrices;
+
+import java.util.function.IntToDoubleFunction;
+
+// M = diag(A): every element of the residual divided by the diagonal element of its row.
+public class JacobiPreconditioner implements Preconditioner {
+    private final double[] inverseDiagonal;
+
+    public JacobiPreconditioner(Matrix m) {
+        this(diagonalOf(m.getRowCount(), m.getColumnCount(), i -> m.get(i, i)));
+    }
+
+    public JacobiPreconditioner(SparseMatrix m) {
+        this(diagonalOf(m.getRowCount(), m.getColumnCount(), i -> m.get(i, i)));
+    }
+
+    public JacobiPreconditioner(double[] diagonal) {
+        this.inverseDiagonal = new double[diagonal.length];
+        for (int i = 0; i < diagonal.length; i++) {
+            if (diagonal[i] == 0) throw new RuntimeException("Zero on the diagonal at row " + i + ".");
+            this.inverseDiagonal[i] = 1 / diagonal[i];
+        }
+    }
+
+    private static double[] diagonalOf(int rowCount, int columnCount, IntToDoubleFunction diagonalElement) {
+        if (rowCount != columnCount) throw new RuntimeException("Only square matrices can be preconditioned.");
+
+        double[] diagonal = new double[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            diagonal[i] = diagonalElement.applyAsDouble(i);
+        }
+
+        return diagonal;
+    }
+
+    @Override
+    public void apply(double[] r, double[] z) {
+        for (int i = 0; i < inverseDiagonal.length; i++) {
+            z[i] = r[i] * inverseDiagonal[i];
+        }
+    }
+}
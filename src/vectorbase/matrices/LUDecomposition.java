@@ -0,0 +1,208 @@
+package vectorbase.matrices;
+
+import vectorbase.kernels.Kernels;
+import vectorbase.matrices.vectors.Vector;
+
+// PA = LU with partial pivoting, computed once and reused for every solve.
+// L (unit lower, diagonal not stored) and U are packed in one row-major n x n array.
+public class LUDecomposition {
+    private final double[] lu;
+    private final int n;
+    private final int[] permutation;
+    private final boolean evenPermutation;
+    private final boolean singular;
+
+    public LUDecomposition(SquareMatrix m) {
+        this.n = m.getRowCount();
+        this.lu = m.copyData();
+        this.permutation = new int[n];
+
+        int swaps = factor(lu, n, permutation);
+
+        this.singular = swaps < 0;
+        this.evenPermutation = (singular ? ~swaps : swaps) % 2 == 0;
+    }
+
+    // Factors lu (n x n, row-major) in place and fills the permutation.
+    // Returns the number of row interchanges, or its bitwise complement (a negative number) if the matrix is singular.
+    static int factor(double[] lu, int n, int[] permutation) {
+        for (int i = 0; i < n; i++) {
+            permutation[i] = i;
+        }
+
+        // Pivots below this are rounding residue of an exactly singular matrix.
+        double largest = 0;
+        for (int i = 0; i < n * n; i++) {
+            largest = Math.max(largest, Math.abs(lu[i]));
+        }
+        double tolerance = n * Math.ulp(largest);
+
+        int swaps = 0;
+        boolean singular = false;
+
+        // 'i' is the column index, and the pivot's row.
+        for (int i = 0; i < n; i++) {
+            int best = i;
+            for (int j = i + 1; j < n; j++) {
+                if (Math.abs(lu[j * n + i]) > Math.abs(lu[best * n + i])) best = j;
+            }
+
+            if (best != i) {
+                swapRows(lu, n, best, i);
+
+                int tmp = permutation[best];
+                permutation[best] = permutation[i];
+                permutation[i] = tmp;
+
+                swaps++;
+            }
+
+            double pivot = lu[i * n + i];
+            if (Math.abs(pivot) <= tolerance) {
+                singular = true;
+                continue;
+            }
+
+            for (int j = i + 1; j < n; j++) {
+                double el = lu[j * n + i];
+                if (el == 0) continue;
+
+                double c = el / pivot;
+                lu[j * n + i] = c;
+                Kernels.axpy(-c, lu, i * n + i + 1, lu, j * n + i + 1, n - i - 1);
+            }
+        }
+
+        return singular ? ~swaps : swaps;
+    }
+
+    private static void swapRows(double[] lu, int n, int r1, int r2) {
+        for (int k = 0; k < n; k++) {
+            double tmp = lu[r1 * n + k];
+            lu[r1 * n + k] = lu[r2 * n + k];
+            lu[r2 * n + k] = tmp;
+        }
+    }
+
+    public boolean isSingular() {
+        return singular;
+    }
+
+    public double determinant() {
+        if (singular) return 0;
+
+        double determinant = evenPermutation ? 1 : -1;
+        for (int i = 0; i < n; i++) {
+            determinant *= lu[i * n + i];
+        }
+
+        return determinant;
+    }
+
+    public Vector solve(Vector v) {
+        if (v.getDimension() != n) throw new RuntimeException("Vector is not in the dimension of the matrix.");
+
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = v.get(permutation[i]);
+        }
+
+        solveInPlace(x, 1);
+
+        return new Vector(x);
+    }
+
+    // Every column of m is a right-hand side.
+    public Matrix solve(Matrix m) {
+        if (m.getRowCount() != n) throw new RuntimeException("Matrix does not have " + n + " rows.");
+
+        int k = m.getColumnCount();
+        double[] b = m.data();
+        double[] x = new double[n * k];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(b, permutation[i] * k, x, i * k, k);
+        }
+
+        solveInPlace(x, k);
+
+        if (n == k) return new SquareMatrix(n, x);
+
+        return new Matrix(n, k, x);
+    }
+
+    public SquareMatrix inverse() {
+        double[] x = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            x[i * n + permutation[i]] = 1;
+        }
+
+        solveInPlace(x, n);
+
+        return new SquareMatrix(n, x);
+    }
+
+    // x is n x k, already permuted. Forward substitution with L, then back substitution with U, row by row.
+    void solveInPlace(double[] x, int k) {
+        if (singular) throw new RuntimeException("Matrix is not invertible.");
+
+        if (k == 1) {
+            substitute(lu, n, x);
+            return;
+        }
+
+        for (int i = 1; i < n; i++) {
+            for (int j = 0; j < i; j++) {
+                double l = lu[i * n + j];
+                if (l != 0) Kernels.axpy(-l, x, j * k, x, i * k, k);
+            }
+        }
+
+        for (int i = n - 1; i >= 0; i--) {
+            for (int j = i + 1; j < n; j++) {
+                double u = lu[i * n + j];
+                if (u != 0) Kernels.axpy(-u, x, j * k, x, i * k, k);
+            }
+
+            // Divided, not scaled by the reciprocal, so that it rounds like substitute.
+            double pivot = lu[i * n + i];
+            for (int j = i * k; j < (i + 1) * k; j++) {
+                x[j] /= pivot;
+            }
+        }
+    }
+
+    // A single right-hand side: one dot product per row instead of n one-element updates.
+    static void substitute(double[] lu, int n, double[] x) {
+        for (int i = 1; i < n; i++) {
+            x[i] -= Kernels.dot(lu, i * n, x, 0, i);
+        }
+
+        for (int i = n - 1; i >= 0; i--) {
+            x[i] = (x[i] - Kernels.dot(lu, i * n + i + 1, x, i + 1, n - i - 1)) / lu[i * n + i];
+        }
+    }
+
+    public SquareMatrix getL() {
+        double[] l = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(lu, i * n, l, i * n, i);
+            l[i * n + i] = 1;
+        }
+
+        return new SquareMatrix(n, l);
+    }
+
+    public SquareMatrix getU() {
+        double[] u = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(lu, i * n + i, u, i * n + i, n - i);
+        }
+
+        return new SquareMatrix(n, u);
+    }
+
+    // Row i of PA is row getPermutation()[i] of A.
+    public int[] getPermutation() {
+        return permutation.clone();
+    }
+}
@@ -0,0 +1,15 @@
+package vectorbase.matrices;
+
+// A matrix seen only through its products with vectors, which is all the iterative methods need:
+// dense, sparse and structured matrices alike, or an operator that is never stored at all.
+public interface LinearOperator {
+    int getRowCount();
+
+    int getColumnCount();
+
+    // y = A x, with x of getColumnCount() and y of getRowCount() elements. y is overwritten.
+    void apply(double[] x, double[] y);
+
+    // y = A^T x, with x of getRowCount() and y of getColumnCount() elements. y is overwritten.
+    void applyTranspose(double[] x, double[] y);
+}
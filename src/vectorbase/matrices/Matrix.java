@@ -1,13 +1,25 @@
 package vectorbase.matrices;
 
 import vectorbase.*;
+import vectorbase.kernels.Kernels;
 import vectorbase.matrices.vectors.Vector;
 import vectorbase.matrices.vectors.VectorSet;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
-public class Matrix extends VectorBase {
-    private final double[][] matrix;
+public class Matrix extends VectorBase implements LinearOperator {
+    // Row-major: the element (row, col) is at data[row * columnCount + col].
+    private final double[] data;
+    private final int rowCount;
+    private final int columnCount;
+
+    // Created on the first derived result that is kept on this matrix (see DerivedResults).
+    private volatile DerivedResults derived;
+    private static final AtomicReferenceFieldUpdater<Matrix, DerivedResults> DERIVED =
+        AtomicReferenceFieldUpdater.newUpdater(Matrix.class, DerivedResults.class, "derived");
 
     public Matrix(double[]... matrix) {
         if (matrix.length == 0) throw new RuntimeException("Matrix is empty.");
@@ -17,7 +29,9 @@ public class Matrix extends VectorBase {
             if (matrix[i].length != columnCount) throw new RuntimeException(Arrays.toString(matrix) + " is not a valid matrix.");
         }
 
-        this.matrix = deepCopyMatrix(matrix);
+        this.rowCount = matrix.length;
+        this.columnCount = columnCount;
+        this.data = flatten(matrix);
     }
 
     public Matrix(VectorSet columnVectors) {
@@ -26,335 +40,427 @@ public class Matrix extends VectorBase {
         int rowCount = columnVectors.get(0).getDimension();
         int columnCount = columnVectors.getSize();
 
-        double[][] matrix = new double[rowCount][columnCount];
+        double[] data = new double[rowCount * columnCount];
 
         for (int i = 0; i < columnCount; i++) {
             Vector v = columnVectors.get(i);
 
             for (int j = 0; j < rowCount; j++) {
-                matrix[j][i] = v.get(j);
+                data[j * columnCount + i] = v.get(j);
             }
         }
 
-        this.matrix = matrix;
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        this.data = data;
+    }
+
+    // Takes the array as it is, without the defensive copy.
+    // Only for arrays that are not mutated anywhere else; the array may be shared between immutable matrices.
+    Matrix(int rowCount, int columnCount, double[] data) {
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        this.data = data;
+    }
+
+    // Zero-copy view over a row-major array. The caller must not modify the array afterwards.
+    public static Matrix wrap(double[] data, int rowCount, int columnCount) {
+        checkDimensions(data, rowCount, columnCount);
+
+        return new Matrix(rowCount, columnCount, data);
+    }
+
+    // Zero-copy over a file written by MatrixFile; the elements are paged in as they are read. See MatrixFile.map.
+    public static OffHeapMatrix mapFile(Path path) throws IOException {
+        return MatrixFile.map(path);
+    }
+
+    DerivedResults derivedResults() {
+        return this.derived;
+    }
+
+    DerivedResults createDerivedResults() {
+        DERIVED.compareAndSet(this, null, new DerivedResults());
+
+        return this.derived;
+    }
+
+    // Whether results derived from this matrix can be kept: false for matrices that can change.
+    boolean cachesDerivedResults() {
+        return true;
+    }
+
+    static void checkDimensions(double[] data, int rowCount, int columnCount) {
+        if (rowCount <= 0 || columnCount <= 0) throw new RuntimeException("Matrix is empty.");
+        if (data.length != rowCount * columnCount) throw new RuntimeException("Array length does not match " + rowCount + "x" + columnCount + ".");
     }
 
-    private double[][] deepCopyMatrix(double[][] m) {
-        double[][] matrix = new double[m.length][m[0].length];
+    private static double[] flatten(double[][] m) {
+        int columnCount = m[0].length;
+        double[] data = new double[m.length * columnCount];
 
         for (int i = 0; i < m.length; i++) {
-            matrix[i] = m[i].clone();
+            System.arraycopy(m[i], 0, data, i * columnCount, columnCount);
         }
 
-        return matrix;
+        return data;
+    }
+
+    // Structured matrices (zero, identity, diagonal) store their own representation and no dense array.
+    Matrix(int rowCount, int columnCount) {
+        if (rowCount <= 0 || columnCount <= 0) throw new RuntimeException("Matrix is empty.");
+
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        this.data = null;
+    }
+
+    // Backing array, read-only for the kernels in this package.
+    // Structured matrices build it on first use, only for the operations they do not short-circuit.
+    double[] data() {
+        return this.data;
+    }
+
+    // The matrix this one is the transpose of, when it is a view that reads it in place; see MatrixView.
+    Matrix transposedSource() {
+        return null;
+    }
+
+    // Mutable scratch copy of the elements, for the elimination kernel.
+    double[] copyData() {
+        return data().clone();
     }
 
     public int getRowCount() {
-        return this.matrix.length;
+        return this.rowCount;
     }
 
     public int getColumnCount() {
-        if (this.getRowCount() == 0) return 0;
-        return this.matrix[0].length;
+        return this.columnCount;
     }
 
     public double get(int row, int col) {
-        return this.matrix[row][col];
+        return data()[row * this.columnCount + col];
     }
 
     public double[] getRow(int row) {
-        return this.matrix[row].clone();
+        int offset = row * this.columnCount;
+        return Arrays.copyOfRange(data(), offset, offset + this.columnCount);
     }
 
     public double[] getColumn(int col) {
-        double[] column = new double[this.getRowCount()];
-        for (int i = 0; i < this.getRowCount(); i++) {
-            column[i] = matrix[i][col];
+        double[] data = data();
+        double[] column = new double[this.rowCount];
+        for (int i = 0; i < this.rowCount; i++) {
+            column[i] = data[i * this.columnCount + col];
         }
 
         return column;
     }
 
-    public Solution solve(Vector v) {
-        AugmentedMatrix augmentedMatrix = new AugmentedMatrix(this, v.toMatrix());
-        AugmentedMatrix rref = augmentedMatrix.getRowReducedEchelonForm();
+    // One dot product per row.
+    @Override
+    public void apply(double[] x, double[] y) {
+        double[] data = data();
+        for (int i = 0; i < this.rowCount; i++) {
+            y[i] = Kernels.dot(data, i * this.columnCount, x, 0, this.columnCount);
+        }
+    }
 
-        Matrix matrix = rref.getMatrix1();
-        Vector solution = rref.getMatrix2().toVector();
+    // The rows scaled by x, summed: the matrix is still read along its rows.
+    @Override
+    public void applyTranspose(double[] x, double[] y) {
+        Arrays.fill(y, 0, this.columnCount, 0);
 
-        if (
-            solution.get(solution.getDimension() - 1) != 0 &&
-            matrix.get(matrix.getRowCount() - 1, matrix.getColumnCount() - 1) == 0
-        ) {
-            return new Solution(null, null);
+        double[] data = data();
+        for (int i = 0; i < this.rowCount; i++) {
+            if (x[i] != 0) Kernels.axpy(x[i], data, i * this.columnCount, y, 0, this.columnCount);
         }
+    }
 
-        if (matrix.getColumnCount() > matrix.getRowCount()) {
-            VectorSet nullSpace = matrix.getNullSpace();
-            return new Solution(solution, nullSpace);
-        }
+    public QRDecomposition getQRDecomposition() {
+        return new QRDecomposition(this);
+    }
 
-        return new Solution(solution, null);
+    // x minimizing |Ax - v|, for overdetermined systems.
+    public Vector solveLeastSquares(Vector v) {
+        return getQRDecomposition().solveLeastSquares(v);
     }
 
-    public Matrix multiplyWith(Matrix m) {
-        if (this.getColumnCount() != m.getColumnCount()) throw new RuntimeException("Those matrices cannot be multiplied.");
+    public SingularValueDecomposition getSingularValueDecomposition() {
+        return new SingularValueDecomposition(this);
+    }
 
-        double[][] res = new double[this.getRowCount()][m.getColumnCount()];
+    // Numerical rank: the singular values above rounding level.
+    public int getRank() {
+        return getSingularValueDecomposition().getRank();
+    }
 
-        for (int i = 0; i < this.getRowCount(); i++) {
-            for (int j = 0; j < m.getColumnCount(); j++) {
-                for (int k = 0; k < this.getColumnCount(); k++) {
-                    res[i][j] += get(i, k) * m.get(k, j);
-                }
-            }
-        }
+    public double getConditionNumber() {
+        return getSingularValueDecomposition().getConditionNumber();
+    }
+
+    // Moore-Penrose pseudo-inverse, columnCount x rowCount.
+    public Matrix getPseudoInverse() {
+        return getSingularValueDecomposition().getPseudoInverse();
+    }
 
-        if (res.length == res[0].length) return new SquareMatrix(res);
+    public Solution solve(Vector v) {
+        if (v.getDimension() != this.rowCount) throw new RuntimeException("Vector is not in the dimension of the matrix.");
+
+        if (this.rowCount == this.columnCount) {
+            // Square and non-singular: factor once and substitute.
+            LUDecomposition lu = new LUDecomposition(new SquareMatrix(this.rowCount, data()));
+            if (!lu.isSingular()) return new Solution(lu.solve(v), null);
+        }
 
-        return new Matrix(res);
+        return solveByElimination(v);
     }
 
-    public Matrix getMinor(int i, int j) {
-        double[][] minor = new double[this.getRowCount() - 1][this.getColumnCount() - 1];
+    // A single elimination of [A | v] gives both the particular solution and the null space. For the singular and
+    // non-square systems, where LUDecomposition has nothing to substitute with.
+    Solution solveByElimination(Vector v) {
+        double[] rref = copyData();
+        double[] b = new double[this.rowCount];
+        double largest = 0;
+        for (int i = 0; i < this.rowCount; i++) {
+            b[i] = v.get(i);
+            largest = Math.max(largest, Math.abs(b[i]));
+        }
+        for (double el : rref) {
+            largest = Math.max(largest, Math.abs(el));
+        }
 
-        for (int row = 0; row < this.getRowCount(); row++) {
-            if (row == i) continue;
-            for (int col = 0; col < this.getColumnCount(); col++) {
-                if (col == j) continue;
+        // Rounding residue must not turn a dependent row into a pivot, or into an inconsistency.
+        double tolerance = Math.max(this.rowCount, this.columnCount) * Math.ulp(largest);
 
-                int rowIndex = row < i ? row : row - 1;
-                int columnIndex = col < j ? col : col - 1;
+        RowReducer reducer = new RowReducer(rref, this.rowCount, this.columnCount, b, 1);
+        reducer.setTolerance(tolerance);
+        reducer.reduceToRowReducedEchelonForm();
 
-                minor[rowIndex][columnIndex] = get(row, col);
-            }
+        int rank = reducer.getRank();
+        for (int i = rank; i < this.rowCount; i++) {
+            if (Math.abs(b[i]) > tolerance) return new Solution(null, null);
         }
 
-        return new Matrix(minor);
-    }
-    
-    public Matrix getEchelonForm() {
-        int pivotsRow = 0;
-        Matrix m = this;
+        // Free variables are 0.
+        int[] pivotColumns = reducer.getPivotColumns();
+        double[] solution = new double[this.columnCount];
+        for (int r = 0; r < rank; r++) {
+            solution[pivotColumns[r]] = b[r];
+        }
 
-        // 'i' is the column index.
-        for (int i = 0; i < m.getColumnCount(); i++) {
-            double pivot = m.get(pivotsRow, i);
+        if (rank == this.columnCount) return new Solution(new Vector(solution), null);
 
-            if (pivot == 0) {
-                // changing pivot to the non-zero element.
-                for (int j = pivotsRow; j < m.getRowCount(); j++) {
-                    if (m.get(j, i) == 0) continue;
+        VectorSet nullSpace = new VectorSet(nullSpaceBasis(rref, this.columnCount, pivotColumns));
+        return new Solution(new Vector(solution), nullSpace);
+    }
 
-                    m = m.interchangeRows(pivotsRow, j);
-                    pivot = m.get(pivotsRow, i);
-                    break;
-                }
+    public Matrix multiplyWith(Matrix m) {
+        if (this.getColumnCount() != m.getRowCount()) throw new RuntimeException("Those matrices cannot be multiplied.");
 
-                // if there is no non-zero element, continue
-                if (pivot == 0) continue;
-            }
+        // A * I = A, A * 0 = 0, A * D scales the columns of A. A square product is a SquareMatrix, as below.
+        if (m instanceof IdentityMatrix) return this.rowCount == m.columnCount ? this.toSquareMatrix() : this;
+        if (ZeroMatrix.isZero(m)) return ZeroMatrix.product(this.rowCount, m.columnCount);
+        if (m instanceof DiagonalMatrix d) return d.scaleColumnsOf(this);
+        // Streamed a tile at a time, so that m is never copied to the heap.
+        if (m instanceof OffHeapMatrix o) return OffHeapMatrix.multiply(this, o, o.isShared());
 
-            // 'j' is the row index
-            for (int j = pivotsRow + 1; j < m.getRowCount(); j++) {
-                if (m.get(j, i) == 0) continue;
+        // A transposed view is read in place by the transposed variant of the kernel.
+        Matrix left = this.transposedSource();
+        Matrix right = m.transposedSource();
 
-                double el = m.get(j, i);
-                double c = -1 * (el / pivot);
-                m = m.addRowTo(pivotsRow, j, c);
-            }
+        int n = this.rowCount;
+        int p = m.columnCount;
+        double[] res = new double[n * p];
+        MatrixMultiplier.multiplyAdd(1, left != null ? left.data() : data(), left != null,
+            right != null ? right.data() : m.data(), right != null, res, n, this.columnCount, p);
 
-            pivotsRow++;
-            if (pivotsRow == m.getRowCount() - 1) break;
-        }
+        if (n == p) return new SquareMatrix(n, res);
 
-        return m;
+        return new Matrix(n, p, res);
     }
 
-    public Matrix getRowReducedEchelonForm() {
-        int pivotsRow = 0;
-        Matrix m = getEchelonForm();
-
-        // 'i' is the column index.
-        for (int i = 0; i < m.getColumnCount(); i++) {
-            double pivot = m.get(pivotsRow, i);
+    // Records the arithmetic on this matrix instead of computing it; see MatrixExpression.
+    public MatrixExpression lazy() {
+        return MatrixExpression.of(this);
+    }
 
-            if (pivot == 0) {
-                // changing pivot to the non-zero element.
-                for (int j = pivotsRow; j < m.getRowCount(); j++) {
-                    if (m.get(j, i) == 0) continue;
+    // A view without row i and column j; it reads this matrix and copies nothing.
+    public Matrix getMinor(int i, int j) {
+        return MatrixView.minor(this, i, j);
+    }
 
-                    m = m.interchangeRows(pivotsRow, j);
-                    pivot = m.get(pivotsRow, i);
-                    break;
-                }
+    // A view of rowCount x columnCount elements from (row, column) on.
+    public Matrix getSubmatrix(int row, int column, int rowCount, int columnCount) {
+        return MatrixView.block(this, row, column, rowCount, columnCount);
+    }
 
-                // if there is no non-zero element, continue
-                if (pivot == 0) continue;
-            }
+    // Row and column as 1 x n and n x 1 views; getRow and getColumn copy them into arrays.
+    public Matrix getRowView(int row) {
+        return MatrixView.block(this, row, 0, 1, this.columnCount);
+    }
 
-            if (pivot != 1) {
-                m = m.scaleRowWith(pivotsRow ,1 / pivot);
-                pivot = m.get(pivotsRow, i);
-            }
+    public Matrix getColumnView(int column) {
+        return MatrixView.block(this, 0, column, this.rowCount, 1);
+    }
 
-            // 'j' is the row index
-            for (int j = 0; j < pivotsRow; j++) {
-                if (m.get(j, i) == 0) continue;
+    public Matrix getEchelonForm() {
+        return DerivedResults.get(this, DerivedResults.Key.ECHELON_FORM, () -> {
+            double[] m = copyData();
+            new RowReducer(m, this.rowCount, this.columnCount).reduceToEchelonForm();
 
-                double el = m.get(j, i);
-                double c = -1 * (el / pivot);
-                m = m.addRowTo(pivotsRow, j, c);
-            }
+            return new Matrix(this.rowCount, this.columnCount, m);
+        });
+    }
 
-            if (pivotsRow == m.getRowCount() - 1) break;
-            pivotsRow++;
-        }
+    public Matrix getRowReducedEchelonForm() {
+        return DerivedResults.get(this, DerivedResults.Key.ROW_REDUCED_ECHELON_FORM, () -> {
+            double[] m = copyData();
+            new RowReducer(m, this.rowCount, this.columnCount).reduceToRowReducedEchelonForm();
 
-        return m;
+            return new Matrix(this.rowCount, this.columnCount, m);
+        });
     }
 
     public Matrix scaleRowWith(int r, double c) {
-        double[] row = getRow(r);
-        
-        for (int i = 0; i < row.length; i++) {
-            row[i] *= c;
+        double[] res = copyData();
+
+        for (int i = r * this.columnCount; i < (r + 1) * this.columnCount; i++) {
+            res[i] *= c;
         }
-        
-        double[][] res = this.matrix.clone();
-        res[r] = row;
-        
-        return new Matrix(res);
+
+        return new Matrix(this.rowCount, this.columnCount, res);
     }
 
     public Matrix interchangeRows(int r1, int r2) {
-        double[][] res = this.matrix.clone();
+        double[] res = copyData();
 
-        res[r1] = getRow(r2);
-        res[r2] = getRow(r1);
+        System.arraycopy(data(), r2 * this.columnCount, res, r1 * this.columnCount, this.columnCount);
+        System.arraycopy(data(), r1 * this.columnCount, res, r2 * this.columnCount, this.columnCount);
 
-        return new Matrix(res);
+        return new Matrix(this.rowCount, this.columnCount, res);
     }
 
     public Matrix addRowTo(int r1, int r2, double c) {
-        double[][] res = this.matrix.clone();
-        
-        double[] row1 = getRow(r1);
-        double[] row2 = getRow(r2);
-        for (int i = 0; i < row1.length; i++) {
-            row2[i] += c * row1[i];
+        double[] res = copyData();
+
+        int offset1 = r1 * this.columnCount;
+        int offset2 = r2 * this.columnCount;
+        for (int i = 0; i < this.columnCount; i++) {
+            res[offset2 + i] += c * res[offset1 + i];
         }
 
-        res[r2] = row2;
-        return new Matrix(res);
+        return new Matrix(this.rowCount, this.columnCount, res);
     }
 
+    // Shares the array: both are immutable.
     public Vector toVector() {
-        double[] res = new double[this.getRowCount() * this.getColumnCount()];
-        for (int i = 0; i < this.getRowCount(); i++) {
-            for (int j = 0; j < this.getColumnCount(); j++) {
-                int pos = i * this.getColumnCount() + j;
-                res[pos] = this.get(i, j);
-            }
-        }
-
-        return new Vector(res);
+        return new Vector(data());
     }
 
     public VectorSet toVectorSet() {
-        Vector[] vectors = new Vector[this.getColumnCount()];
-
-        for (int i = 0; i < this.getColumnCount(); i++) {
-            vectors[i] = new Vector(this.getColumn(i));
-        }
-
-        return new VectorSet(vectors);
+        return new VectorSet(columnVectors());
     }
 
+    // A transposed view of this matrix; transposing it again gives this matrix back.
     public Matrix getTranspose() {
-        double[][] res = new double[this.getColumnCount()][this.getRowCount()];
-        for (int i = 0; i < this.getColumnCount(); i++) {
-            res[i] = getColumn(i);
-        }
-
-        return new Matrix(res);
+        return DerivedResults.get(this, DerivedResults.Key.TRANSPOSE, () -> MatrixView.transpose(this));
     }
 
     public VectorSet getColumnSpace() {
-        Vector[] columnSpace = new Vector[this.getColumnCount()];
-
-        for (int i = 0; i < this.getColumnCount(); i++) {
-            double[] v = new double[this.getRowCount()];
+        return new VectorSet(columnVectors());
+    }
 
-            for (int j = 0; j < this.getRowCount(); j++) {
-                v[j] = get(j, i);
+    // Every vector needs its own array, so the columns are copied, in one pass along the rows.
+    private Vector[] columnVectors() {
+        double[] data = data();
+        double[][] columns = new double[this.columnCount][this.rowCount];
+        for (int i = 0; i < this.rowCount; i++) {
+            int offset = i * this.columnCount;
+            for (int j = 0; j < this.columnCount; j++) {
+                columns[j][i] = data[offset + j];
             }
+        }
 
-            columnSpace[i] = new Vector(v);
+        Vector[] vectors = new Vector[this.columnCount];
+        for (int j = 0; j < this.columnCount; j++) {
+            vectors[j] = new Vector(columns[j]);
         }
 
-        return new VectorSet(columnSpace);
+        return vectors;
     }
 
     public VectorSet getNullSpace() {
-        Matrix rref = this.getRowReducedEchelonForm();
-
-        boolean[] pivots = new boolean[rref.getColumnCount()];
-        int pivotsCount = 0;
-        for (int i = 0; i < this.getColumnCount(); i++) {
-            for (int j = pivotsCount; j < this.getRowCount(); j++) {
-                if (rref.get(j, i) == 0) continue;
-                if (rref.get(j, i) == 1) {
-                    pivots[i] = true;
-                    pivotsCount++;
-                    continue;
-                }
-
-                if (pivots[i] && rref.get(j, i) != 0) {
-                    pivots[i] = false;
-                    pivotsCount--;
-                    break;
-                }
-            }
+        return getRankProfile().getNullSpace();
+    }
+
+    // Rank, pivot columns and null space from a single elimination, to be queried as often as needed.
+    public RankProfile getRankProfile() {
+        return DerivedResults.get(this, DerivedResults.Key.RANK_PROFILE, () -> RankProfile.of(this));
+    }
+
+    // Stops at the first column that depends on the ones before it, unless the rank profile is known already.
+    public boolean hasLinearlyIndependentColumns() {
+        RankProfile profile = DerivedResults.peek(this, DerivedResults.Key.RANK_PROFILE);
+        if (profile != null) return profile.hasIndependentColumns();
+
+        return RankProfile.hasIndependentColumns(this);
+    }
+
+    // One vector per free column of the row reduced echelon form: 1 at the free column, -rref at the pivot columns.
+    static Vector[] nullSpaceBasis(double[] rref, int columnCount, int[] pivotColumns) {
+        boolean[] pivots = new boolean[columnCount];
+        for (int col : pivotColumns) {
+            pivots[col] = true;
         }
 
-        Vector[] nullSpace = new Vector[pivots.length - pivotsCount];
+        Vector[] nullSpace = new Vector[columnCount - pivotColumns.length];
         int vectorIndex = 0;
 
-        for (int i = 0; i < this.getColumnCount(); i++) {
+        for (int i = 0; i < columnCount; i++) {
             if (pivots[i]) continue;
 
-            double[] vector = new double[this.getColumnCount()];
+            double[] vector = new double[columnCount];
+            vector[i] = 1;
 
-            int rowIndex = 0;
-            for (int j = 0; j < this.getColumnCount(); j++) {
-                if (!pivots[j]) {
-                    if (i == j) vector[j] = 1;
-                    else vector[j] = 0;
-                    continue;
-                }
-
-                vector[j] = -1 * rref.get(rowIndex, i);
-                rowIndex++;
+            for (int r = 0; r < pivotColumns.length; r++) {
+                vector[pivotColumns[r]] = -1 * rref[r * columnCount + i];
             }
 
             nullSpace[vectorIndex] = new Vector(vector);
             vectorIndex++;
         }
 
-        return new VectorSet(nullSpace);
+        return nullSpace;
     }
 
+    // Returns {U, L} with A = L * U. With row interchanges L is lower triangular up to the same interchanges of its rows.
+    // For pivoting and reusable solves of a square matrix, see LUDecomposition.
     public Matrix[] getLUFactorization() {
-        IdentityMatrix identityMatrix = new IdentityMatrix(this.getRowCount());
+        Matrix[] factors = DerivedResults.get(this, DerivedResults.Key.LU_FACTORIZATION, this::computeLUFactorization);
 
-        AugmentedMatrix augmentedMatrix = new AugmentedMatrix(this, identityMatrix);
-        AugmentedMatrix ref = augmentedMatrix.getEchelonForm();
+        return factors.clone();
+    }
 
-        Matrix u = ref.getMatrix1();
-        SquareMatrix l = ref.getMatrix2().toSquareMatrix().inverse();
+    private Matrix[] computeLUFactorization() {
+        double[] u = copyData();
+        double[] l = new double[this.rowCount * this.rowCount];
+
+        RowReducer reducer = new RowReducer(u, this.rowCount, this.columnCount);
+        reducer.recordMultipliers(l);
+        reducer.reduceToEchelonForm();
+
+        // The multipliers give L * U for the interchanged rows; moving each row of L back to where its row of A came
+        // from gives L * U = A.
+        int[] rowOrder = reducer.getRowOrder();
+        double[] lower = new double[this.rowCount * this.rowCount];
+        for (int i = 0; i < this.rowCount; i++) {
+            l[i * this.rowCount + i] = 1;
+            System.arraycopy(l, i * this.rowCount, lower, rowOrder[i] * this.rowCount, this.rowCount);
+        }
 
-        return new Matrix[] {u, l};
+        return new Matrix[] {new Matrix(this.rowCount, this.columnCount, u), new SquareMatrix(this.rowCount, lower)};
     }
 
     public boolean isOrthogonal() {
@@ -372,37 +478,25 @@ public class Matrix extends VectorBase {
 
     public SquareMatrix toSquareMatrix() {
         if (this.getRowCount() != this.getColumnCount()) throw new RuntimeException("This matrix is not a square matrix.");
+        if (this instanceof SquareMatrix s) return s;
 
-        return new SquareMatrix(this.matrix);
+        return new SquareMatrix(this.rowCount, data());
     }
 
     @Override
-    public VectorBase scaleWith(double c) {
-        double[][] resultMatrix = new double[this.getRowCount()][this.getColumnCount()];
-        for (int i = 0; i < this.matrix.length; i++) {
-            for (int j = 0; j < this.matrix[0].length; j++) {
-                resultMatrix[i][j] = c * this.matrix[i][j];
-            }
-        }
-
-        return new Matrix(resultMatrix);
+    public Matrix scaleWith(double c) {
+        return new Matrix(this.rowCount, this.columnCount, Kernels.scale(c, data()));
     }
 
     @Override
-    public VectorBase add(VectorBase v) {
+    public Matrix add(VectorBase v) {
         if (!(v instanceof Matrix m2)) throw new RuntimeException("Not a valid matrix.");
         if (this.getRowCount() != m2.getRowCount() ||
             this.getColumnCount() != m2.getColumnCount()
         ) throw new RuntimeException("Matrices are not in the same dimension.");
+        if (ZeroMatrix.isZero(m2)) return this;
         
-        double[][] resultMatrix = new double[this.getRowCount()][this.getColumnCount()];
-        for (int i = 0; i < this.getRowCount(); i++) {
-            for (int j = 0; j < this.getColumnCount(); j++) {
-                resultMatrix[i][j] = this.matrix[i][j] + m2.matrix[i][j];
-            }
-        }
-        
-        return new Matrix(resultMatrix);
+        return new Matrix(this.rowCount, this.columnCount, Kernels.add(data(), m2.data()));
     }
 
     @Override
@@ -413,14 +507,7 @@ public class Matrix extends VectorBase {
             this.getColumnCount() != m.getColumnCount()
         ) throw new RuntimeException("Inner product is not defined in these matrices.");
 
-        double result = 0;
-        for (int i = 0; i < this.getRowCount(); i++) {
-            for (int j = 0; j < this.getColumnCount(); j++) {
-                result += this.get(i, j) * m.get(i, j);
-            }
-        }
-
-        return result;
+        return Kernels.dot(data(), m.data());
     }
 
     @Override
@@ -436,7 +523,7 @@ public class Matrix extends VectorBase {
         for (int i = 0; i < this.getRowCount(); i++) {
             s.append("[");
             for (int j = 0; j < this.getColumnCount(); j++) {
-                s.append(" ").append(this.matrix[i][j]).append(" ");
+                s.append(" ").append(this.get(i, j)).append(" ");
             }
             s.append("]\n");
         }
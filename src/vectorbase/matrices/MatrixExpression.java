@@ -0,0 +1,215 @@
+package vectorbase.matrices;
+
+import vectorbase.kernels.Kernels;
+import vectorbase.matrices.vectors.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Lazy matrix arithmetic: scaleWith, add, multiplyWith and getTranspose only record the operation, and evaluate()
+// computes the whole expression at once. An expression is kept as a sum of scaled, possibly transposed matrices
+// plus a sum of scaled products, so that evaluation
+// - writes every element of the result once, adding all the matrix terms tile by tile (no temporaries),
+// - adds every product straight into the result with its scalar folded in (alpha A B + beta C),
+// - reads transposed operands in place instead of building their transpose.
+// Only operands that are themselves sums or products are materialized before a multiplication.
+public final class MatrixExpression {
+    // Elements of the result per fused pass, small enough for the result tile and its operands to stay in cache.
+    private static final int TILE = 4096;
+
+    private record Term(double coefficient, Matrix matrix, boolean transposed) {}
+
+    private record Product(double coefficient, MatrixExpression left, MatrixExpression right) {}
+
+    private final int rowCount;
+    private final int columnCount;
+    private final List<Term> terms;
+    private final List<Product> products;
+
+    private MatrixExpression(int rowCount, int columnCount, List<Term> terms, List<Product> products) {
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        this.terms = terms;
+        this.products = products;
+    }
+
+    public static MatrixExpression of(Matrix m) {
+        Matrix transposed = m.transposedSource();
+        Term term = transposed != null ? new Term(1, transposed, true) : new Term(1, m, false);
+
+        return new MatrixExpression(m.getRowCount(), m.getColumnCount(), List.of(term), List.of());
+    }
+
+    public int getRowCount() {
+        return this.rowCount;
+    }
+
+    public int getColumnCount() {
+        return this.columnCount;
+    }
+
+    public MatrixExpression scaleWith(double c) {
+        List<Term> terms = new ArrayList<>(this.terms.size());
+        for (Term t : this.terms) {
+            terms.add(new Term(c * t.coefficient(), t.matrix(), t.transposed()));
+        }
+
+        List<Product> products = new ArrayList<>(this.products.size());
+        for (Product p : this.products) {
+            products.add(new Product(c * p.coefficient(), p.left(), p.right()));
+        }
+
+        return new MatrixExpression(this.rowCount, this.columnCount, terms, products);
+    }
+
+    public MatrixExpression add(Matrix m) {
+        return add(of(m));
+    }
+
+    public MatrixExpression add(MatrixExpression e) {
+        if (this.rowCount != e.rowCount || this.columnCount != e.columnCount) throw new RuntimeException("Matrices are not in the same dimension.");
+
+        List<Term> terms = new ArrayList<>(this.terms);
+        terms.addAll(e.terms);
+
+        List<Product> products = new ArrayList<>(this.products);
+        products.addAll(e.products);
+
+        return new MatrixExpression(this.rowCount, this.columnCount, terms, products);
+    }
+
+    public MatrixExpression multiplyWith(Matrix m) {
+        return multiplyWith(of(m));
+    }
+
+    public MatrixExpression multiplyWith(MatrixExpression e) {
+        if (this.columnCount != e.rowCount) throw new RuntimeException("Those matrices cannot be multiplied.");
+
+        // A * I = A, A * 0 = 0.
+        Matrix single = e.single();
+        if (single instanceof IdentityMatrix) return scaleWith(e.terms.get(0).coefficient());
+        if (single != null && ZeroMatrix.isZero(single)) return new MatrixExpression(this.rowCount, e.columnCount, List.of(), List.of());
+
+        return new MatrixExpression(this.rowCount, e.columnCount, List.of(), List.of(new Product(1, this, e)));
+    }
+
+    // (A + B)^T = A^T + B^T and (AB)^T = B^T A^T, down to the matrices, which are then read transposed.
+    public MatrixExpression getTranspose() {
+        List<Term> terms = new ArrayList<>(this.terms.size());
+        for (Term t : this.terms) {
+            terms.add(new Term(t.coefficient(), t.matrix(), !t.transposed()));
+        }
+
+        List<Product> products = new ArrayList<>(this.products.size());
+        for (Product p : this.products) {
+            products.add(new Product(p.coefficient(), p.right().getTranspose(), p.left().getTranspose()));
+        }
+
+        return new MatrixExpression(this.columnCount, this.rowCount, terms, products);
+    }
+
+    // The matrix when the expression is a single scaled, possibly transposed matrix; null otherwise.
+    private Matrix single() {
+        if (this.terms.size() != 1 || !this.products.isEmpty()) return null;
+
+        return this.terms.get(0).matrix();
+    }
+
+    public Matrix evaluate() {
+        // Nothing to compute.
+        if (this.products.isEmpty() && this.terms.size() == 1) {
+            Term t = this.terms.get(0);
+            if (t.coefficient() == 1 && !t.transposed()) return t.matrix();
+        }
+
+        double[] result = new double[this.rowCount * this.columnCount];
+        List<Term> terms = new ArrayList<>(this.terms);
+        List<Product> gemms = new ArrayList<>();
+
+        // Products with structured matrices have their own shortcuts in Matrix.multiplyWith; their results join
+        // the terms.
+        for (Product p : this.products) {
+            if (structured(p.left()) || structured(p.right())) {
+                Term left = operand(p.left());
+                Term right = operand(p.right());
+                Matrix product = matrix(left).multiplyWith(matrix(right));
+
+                terms.add(new Term(p.coefficient() * left.coefficient() * right.coefficient(), product, false));
+            } else {
+                gemms.add(p);
+            }
+        }
+
+        addTerms(terms, result);
+
+        for (Product p : gemms) {
+            Term left = operand(p.left());
+            Term right = operand(p.right());
+            double alpha = p.coefficient() * left.coefficient() * right.coefficient();
+
+            if (alpha != 0) {
+                MatrixMultiplier.multiplyAdd(alpha, left.matrix().data(), left.transposed(), right.matrix().data(), right.transposed(),
+                    result, this.rowCount, p.left().columnCount, this.columnCount);
+            }
+        }
+
+        if (this.rowCount == this.columnCount) return new SquareMatrix(this.rowCount, result);
+
+        return new Matrix(this.rowCount, this.columnCount, result);
+    }
+
+    // The expression as a vector; it must evaluate to a single column or a single row.
+    public Vector evaluateVector() {
+        if (this.rowCount != 1 && this.columnCount != 1) throw new RuntimeException("Expression is not a vector.");
+
+        return new Vector(evaluate().data());
+    }
+
+    // A multiplication operand as one scaled, possibly transposed matrix, evaluating it if it is more than that.
+    private static Term operand(MatrixExpression e) {
+        if (e.single() != null) return e.terms.get(0);
+
+        return new Term(1, e.evaluate(), false);
+    }
+
+    private static Matrix matrix(Term t) {
+        return t.transposed() ? t.matrix().getTranspose() : t.matrix();
+    }
+
+    private static boolean structured(MatrixExpression e) {
+        Matrix m = e.single();
+
+        return m instanceof ZeroMatrix || m instanceof DiagonalMatrix;
+    }
+
+    // result += sum of c * op(M), one tile of rows at a time, so every tile of the result is written once while
+    // it is in cache.
+    private void addTerms(List<Term> terms, double[] result) {
+        int rowsPerTile = Math.max(1, TILE / this.columnCount);
+
+        for (int rowFrom = 0; rowFrom < this.rowCount; rowFrom += rowsPerTile) {
+            int rowTo = Math.min(rowFrom + rowsPerTile, this.rowCount);
+            int offset = rowFrom * this.columnCount;
+            int length = (rowTo - rowFrom) * this.columnCount;
+
+            for (Term t : terms) {
+                double c = t.coefficient();
+                if (c == 0 || ZeroMatrix.isZero(t.matrix())) continue;
+
+                double[] data = t.matrix().data();
+                if (!t.transposed()) {
+                    Kernels.axpy(c, data, offset, result, offset, length);
+                    continue;
+                }
+
+                // The stored matrix is columnCount x rowCount: row i of the result is its column i.
+                for (int i = rowFrom; i < rowTo; i++) {
+                    int row = i * this.columnCount;
+                    for (int j = 0; j < this.columnCount; j++) {
+                        result[row + j] += c * data[j * this.rowCount + i];
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package vectorbase.matrices;
+
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+// Binary matrix files: a 64-byte header followed by the elements as raw little-endian doubles, so that a file can be
+// mapped and used as it is instead of parsed.
+// Header, little-endian:
+//   0  magic "VBMX"
+//   4  version (int)
+//   8  rowCount (long)
+//  16  columnCount (long)
+//  24  layout (byte): 0 row-major, 1 column-major
+//  25  element type (byte): 0 float64
+//  26  flags (byte): 1 if the checksum is set
+//  32  CRC32C of the element bytes (long)
+//  40  reserved, zero
+// Needs --add-modules jdk.incubator.foreign.
+public final class MatrixFile {
+    public enum Layout {
+        ROW_MAJOR,
+        COLUMN_MAJOR
+    }
+
+    static final int HEADER_SIZE = 64;
+    private static final byte[] MAGIC = {'V', 'B', 'M', 'X'};
+    private static final int VERSION = 1;
+    private static final byte FLOAT64 = 0;
+    private static final byte CHECKSUM = 1;
+
+    // Bytes per write or read of the streaming paths.
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private MatrixFile() {}
+
+    public static void write(Matrix m, Path path) throws IOException {
+        write(m, path, true);
+    }
+
+    // Row by row, so that an off-heap or mapped matrix is never copied to the heap as a whole.
+    public static void write(Matrix m, Path path, boolean checksum) throws IOException {
+        try (Writer writer = writer(path, m.getRowCount(), m.getColumnCount(), Layout.ROW_MAJOR, checksum)) {
+            if (m instanceof OffHeapMatrix) {
+                for (int i = 0; i < m.getRowCount(); i++) {
+                    writer.write(m.getRow(i));
+                }
+            } else {
+                double[] data = m.data();
+                writer.write(data, 0, data.length);
+            }
+        }
+    }
+
+    // Writes a matrix a line at a time (a row, or a column for Layout.COLUMN_MAJOR) with a bounded buffer, for
+    // matrices that are produced piece by piece or do not fit in memory.
+    public static Writer writer(Path path, int rowCount, int columnCount, Layout layout, boolean checksum) throws IOException {
+        return new Writer(path, rowCount, columnCount, layout, checksum);
+    }
+
+    public static final class Writer implements AutoCloseable {
+        private final FileChannel channel;
+        private final int rowCount;
+        private final int columnCount;
+        private final Layout layout;
+        private final CRC32C checksum;
+        private final ByteBuffer buffer;
+        private final long elementCount;
+        private long written;
+
+        private Writer(Path path, int rowCount, int columnCount, Layout layout, boolean checksum) throws IOException {
+            if (rowCount <= 0 || columnCount <= 0) throw new RuntimeException("Matrix is empty.");
+
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            this.rowCount = rowCount;
+            this.columnCount = columnCount;
+            this.layout = layout;
+            this.checksum = checksum ? new CRC32C() : null;
+            this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            this.elementCount = (long) rowCount * columnCount;
+
+            // The header is written last, once the checksum is known.
+            this.channel.position(HEADER_SIZE);
+        }
+
+        // The next row (or column, for Layout.COLUMN_MAJOR).
+        public void write(double[] line) throws IOException {
+            int length = layout == Layout.ROW_MAJOR ? columnCount : rowCount;
+            if (line.length != length) throw new RuntimeException("Line does not have " + length + " elements.");
+
+            write(line, 0, length);
+        }
+
+        // Any number of elements, continuing where the last write stopped.
+        void write(double[] elements, int offset, int length) throws IOException {
+            if (written + length > elementCount) throw new RuntimeException("More elements than the matrix has.");
+
+            while (length > 0) {
+                int count = Math.min(length, buffer.remaining() / Double.BYTES);
+                buffer.asDoubleBuffer().put(elements, offset, count);
+                buffer.position(buffer.position() + count * Double.BYTES);
+                if (!buffer.hasRemaining()) flush();
+
+                offset += count;
+                length -= count;
+                written += count;
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            if (checksum != null) {
+                checksum.update(buffer.duplicate());
+            }
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                if (written != elementCount) throw new RuntimeException("Only " + written + " of " + elementCount + " elements were written.");
+
+                ByteBuffer header = header(rowCount, columnCount, layout, checksum == null ? null : checksum.getValue());
+                channel.write(header, 0);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    private static ByteBuffer header(int rowCount, int columnCount, Layout layout, Long checksum) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC);
+        header.putInt(VERSION);
+        header.putLong(rowCount);
+        header.putLong(columnCount);
+        header.put((byte) layout.ordinal());
+        header.put(FLOAT64);
+        header.put(checksum == null ? 0 : CHECKSUM);
+        header.putLong(32, checksum == null ? 0 : checksum);
+
+        return header.rewind();
+    }
+
+    // The parsed header of a file.
+    record Header(int rowCount, int columnCount, Layout layout, Long checksum) {
+        long elementCount() {
+            return (long) rowCount * columnCount;
+        }
+    }
+
+    static Header readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) throw new IOException("Not a matrix file: too short.");
+        }
+        header.flip();
+
+        byte[] magic = new byte[MAGIC.length];
+        header.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) throw new IOException("Not a matrix file.");
+
+        int version = header.getInt();
+        if (version != VERSION) throw new IOException("Unsupported matrix file version " + version + ".");
+
+        long rowCount = header.getLong();
+        long columnCount = header.getLong();
+        if (rowCount <= 0 || columnCount <= 0 || rowCount > Integer.MAX_VALUE || columnCount > Integer.MAX_VALUE) {
+            throw new IOException("Invalid matrix dimensions " + rowCount + "x" + columnCount + ".");
+        }
+
+        int layout = header.get();
+        if (layout < 0 || layout >= Layout.values().length) throw new IOException("Unknown layout " + layout + ".");
+        if (header.get() != FLOAT64) throw new IOException("Unsupported element type.");
+        boolean hasChecksum = (header.get() & CHECKSUM) != 0;
+
+        Header parsed = new Header((int) rowCount, (int) columnCount, Layout.values()[layout], hasChecksum ? header.getLong(32) : null);
+        if (channel.size() != HEADER_SIZE + parsed.elementCount() * Double.BYTES) throw new IOException("File size does not match the header.");
+
+        return parsed;
+    }
+
+    // Into a heap matrix. Checks the checksum if the file has one.
+    public static Matrix read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Header header = readHeader(channel);
+            if (header.elementCount() > Integer.MAX_VALUE - 8) throw new RuntimeException("Matrix is too large for the heap, map it instead.");
+
+            double[] data = new double[(int) header.elementCount()];
+            CRC32C checksum = new CRC32C();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+            long position = HEADER_SIZE;
+            int offset = 0;
+            while (offset < data.length) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), (long) (data.length - offset) * Double.BYTES));
+                while (buffer.hasRemaining()) {
+                    int count = channel.read(buffer, position);
+                    if (count < 0) throw new IOException("Unexpected end of file.");
+                    position += count;
+                }
+                buffer.flip();
+                checksum.update(buffer.duplicate());
+
+                DoubleBuffer doubles = buffer.asDoubleBuffer();
+                int count = doubles.remaining();
+                doubles.get(data, offset, count);
+                offset += count;
+            }
+
+            if (header.checksum() != null && header.checksum() != checksum.getValue()) throw new IOException("Checksum does not match.");
+
+            int n = header.rowCount();
+            int m = header.columnCount();
+            if (header.layout() == Layout.COLUMN_MAJOR) return new Matrix(n, m, MatrixMultiplier.transpose(data, m, n));
+
+            return new Matrix(n, m, data);
+        }
+    }
+
+    // The elements stay in the file and are paged in as they are read: opening is O(1) whatever the size.
+    // The mapping is shared between threads and read-only; it is released by close() on the matrix.
+    // A column-major file is transposed into native memory once.
+    public static OffHeapMatrix map(Path path) throws IOException {
+        return map(path, false);
+    }
+
+    // With verifyChecksum, reads the whole file once to check it.
+    public static OffHeapMatrix map(Path path, boolean verifyChecksum) throws IOException {
+        checkByteOrder();
+
+        Header header;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            header = readHeader(channel);
+        }
+
+        ResourceScope scope = OffHeapMatrix.newScope(true);
+        MemorySegment segment = MemorySegment.mapFile(path, HEADER_SIZE, header.elementCount() * Double.BYTES, FileChannel.MapMode.READ_ONLY, scope);
+
+        if (verifyChecksum && header.checksum() != null && header.checksum() != checksum(segment)) {
+            scope.close();
+            throw new IOException("Checksum does not match.");
+        }
+
+        if (header.layout() == Layout.ROW_MAJOR) return new OffHeapMatrix(header.rowCount(), header.columnCount(), segment, scope, true);
+
+        try (OffHeapMatrix stored = new OffHeapMatrix(header.columnCount(), header.rowCount(), segment, scope, true)) {
+            return stored.getTranspose();
+        }
+    }
+
+    // A new row-major file of zeros, mapped for reading and writing: the target of out-of-core results (see OutOfCore).
+    // The file is sparse until written, and carries no checksum.
+    public static OffHeapMatrix create(Path path, int rowCount, int columnCount) throws IOException {
+        if (rowCount <= 0 || columnCount <= 0) throw new RuntimeException("Matrix is empty.");
+
+        checkByteOrder();
+
+        long size = (long) rowCount * columnCount * Double.BYTES;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.write(header(rowCount, columnCount, Layout.ROW_MAJOR, null), 0);
+            channel.write(ByteBuffer.allocate(1), HEADER_SIZE + size - 1);
+        }
+
+        return mapWritable(path, rowCount, columnCount);
+    }
+
+    // An existing row-major file mapped for reading and writing, e.g. to be factored in place. Writes through the
+    // mapping invalidate the checksum, so it is cleared from the header.
+    public static OffHeapMatrix open(Path path) throws IOException {
+        checkByteOrder();
+
+        Header header;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            header = readHeader(channel);
+            if (header.layout() != Layout.ROW_MAJOR) throw new IOException("Only row-major files can be opened for writing.");
+
+            if (header.checksum() != null) channel.write(header(header.rowCount(), header.columnCount(), Layout.ROW_MAJOR, null), 0);
+        }
+
+        return mapWritable(path, header.rowCount(), header.columnCount());
+    }
+
+    private static OffHeapMatrix mapWritable(Path path, int rowCount, int columnCount) throws IOException {
+        ResourceScope scope = OffHeapMatrix.newScope(true);
+        MemorySegment segment = MemorySegment.mapFile(path, HEADER_SIZE, (long) rowCount * columnCount * Double.BYTES, FileChannel.MapMode.READ_WRITE, scope);
+
+        return new OffHeapMatrix(rowCount, columnCount, segment, scope, true);
+    }
+
+    // The mapped elements are read in the native order.
+    private static void checkByteOrder() {
+        if (ByteOrder.nativeOrder() != ByteOrder.LITTLE_ENDIAN) throw new RuntimeException("Mapping needs a little-endian platform; use read instead.");
+    }
+
+    private static long checksum(MemorySegment segment) {
+        // Through a heap buffer: CRC32C cannot read buffers of shared segments directly.
+        CRC32C checksum = new CRC32C();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        MemorySegment heap = MemorySegment.ofArray(buffer);
+        for (long offset = 0; offset < segment.byteSize(); offset += BUFFER_SIZE) {
+            int length = (int) Math.min(BUFFER_SIZE, segment.byteSize() - offset);
+            heap.asSlice(0, length).copyFrom(segment.asSlice(offset, length));
+            checksum.update(buffer, 0, length);
+        }
+
+        return checksum.getValue();
+    }
+}
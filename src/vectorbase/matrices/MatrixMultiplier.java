@@ -0,0 +1,171 @@
+package vectorbase.matrices;
+
+import vectorbase.kernels.Kernels;
+
+import java.io.Serial;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Blocked, multi-threaded C = A * B on row-major arrays.
+// B is packed transposed so that every dot product reads two contiguous rows.
+final class MatrixMultiplier {
+    // Below this dimension (on every side) the simple triple loop is used.
+    // Can be changed with -Dvectorbase.multiply.threshold=<n>.
+    static final int SIMPLE_LOOP_THRESHOLD = Integer.getInteger("vectorbase.multiply.threshold", 64);
+
+    // Tile sizes: ROW_BLOCK rows of A and of packed B, INNER_BLOCK elements of the shared dimension.
+    private static final int ROW_BLOCK = 64;
+    private static final int INNER_BLOCK = 256;
+
+    private MatrixMultiplier() {}
+
+    // a is n x k, b is k x p, the result is n x p.
+    static double[] multiply(double[] a, double[] b, int n, int k, int p) {
+        double[] c = new double[n * p];
+        multiplyAdd(1, a, false, b, false, c, n, k, p);
+
+        return c;
+    }
+
+    // c += alpha * op(a) * op(b), where op(a) is n x k and op(b) is k x p. A transposed operand is passed as stored:
+    // a as k x n, b as p x k. A transposed b is already the packed layout, so it is read as it is.
+    static void multiplyAdd(double alpha, double[] a, boolean transposeA, double[] b, boolean transposeB, double[] c, int n, int k, int p) {
+        if (transposeA) a = transpose(a, k, n);
+
+        if (n < SIMPLE_LOOP_THRESHOLD && k < SIMPLE_LOOP_THRESHOLD && p < SIMPLE_LOOP_THRESHOLD) {
+            multiplySimple(alpha, a, transposeB ? transpose(b, p, k) : b, c, n, k, p);
+            return;
+        }
+
+        double[] bt = transposeB ? b : transpose(b, k, p);
+        ForkJoinPool.commonPool().invoke(new RowBlockTask(alpha, a, bt, c, k, p, 0, n));
+    }
+
+    static void multiplySimple(double alpha, double[] a, double[] b, double[] c, int n, int k, int p) {
+        // i-k-j order, so that both b and c are read along rows.
+        for (int i = 0; i < n; i++) {
+            int rowA = i * k;
+            int rowC = i * p;
+            for (int l = 0; l < k; l++) {
+                double el = alpha * a[rowA + l];
+                if (el == 0) continue;
+
+                int rowB = l * p;
+                for (int j = 0; j < p; j++) {
+                    c[rowC + j] += el * b[rowB + j];
+                }
+            }
+        }
+    }
+
+    static double[] transpose(double[] m, int rowCount, int columnCount) {
+        double[] t = new double[m.length];
+        for (int i = 0; i < rowCount; i++) {
+            for (int j = 0; j < columnCount; j++) {
+                t[j * rowCount + i] = m[i * columnCount + j];
+            }
+        }
+
+        return t;
+    }
+
+    // Splits the rows of the result until a task owns a single row block.
+    private static final class RowBlockTask extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final double alpha;
+        private final double[] a;
+        private final double[] bt;
+        private final double[] c;
+        private final int k;
+        private final int p;
+        private final int rowFrom;
+        private final int rowTo;
+
+        RowBlockTask(double alpha, double[] a, double[] bt, double[] c, int k, int p, int rowFrom, int rowTo) {
+            this.alpha = alpha;
+            this.a = a;
+            this.bt = bt;
+            this.c = c;
+            this.k = k;
+            this.p = p;
+            this.rowFrom = rowFrom;
+            this.rowTo = rowTo;
+        }
+
+        @Override
+        protected void compute() {
+            if (rowTo - rowFrom <= ROW_BLOCK) {
+                multiplyRowBlock(alpha, a, bt, c, k, p, rowFrom, rowTo);
+                return;
+            }
+
+            int blocks = (rowTo - rowFrom + ROW_BLOCK - 1) / ROW_BLOCK;
+            int middle = rowFrom + (blocks / 2) * ROW_BLOCK;
+
+            invokeAll(
+                new RowBlockTask(alpha, a, bt, c, k, p, rowFrom, middle),
+                new RowBlockTask(alpha, a, bt, c, k, p, middle, rowTo)
+            );
+        }
+    }
+
+    private static void multiplyRowBlock(double alpha, double[] a, double[] bt, double[] c, int k, int p, int rowFrom, int rowTo) {
+        for (int jb = 0; jb < p; jb += ROW_BLOCK) {
+            int jEnd = Math.min(jb + ROW_BLOCK, p);
+
+            for (int lb = 0; lb < k; lb += INNER_BLOCK) {
+                int lEnd = Math.min(lb + INNER_BLOCK, k);
+
+                int i = rowFrom;
+                for (; i + 1 < rowTo; i += 2) {
+                    int j = jb;
+                    for (; j + 1 < jEnd; j += 2) {
+                        microKernel2x2(alpha, a, bt, c, k, p, i, j, lb, lEnd);
+                    }
+                    if (j < jEnd) {
+                        c[i * p + j] += alpha * dot(a, i * k, bt, j * k, lb, lEnd);
+                        c[(i + 1) * p + j] += alpha * dot(a, (i + 1) * k, bt, j * k, lb, lEnd);
+                    }
+                }
+
+                if (i < rowTo) {
+                    for (int j = jb; j < jEnd; j++) {
+                        c[i * p + j] += alpha * dot(a, i * k, bt, j * k, lb, lEnd);
+                    }
+                }
+            }
+        }
+    }
+
+    // Four dot products at once: every loaded element of a and bt is used twice. Alpha scales the four sums.
+    private static void microKernel2x2(double alpha, double[] a, double[] bt, double[] c, int k, int p, int i, int j, int lFrom, int lTo) {
+        int a0 = i * k;
+        int a1 = a0 + k;
+        int b0 = j * k;
+        int b1 = b0 + k;
+
+        double c00 = 0, c01 = 0, c10 = 0, c11 = 0;
+        for (int l = lFrom; l < lTo; l++) {
+            double x0 = a[a0 + l];
+            double x1 = a[a1 + l];
+            double y0 = bt[b0 + l];
+            double y1 = bt[b1 + l];
+
+            c00 += x0 * y0;
+            c01 += x0 * y1;
+            c10 += x1 * y0;
+            c11 += x1 * y1;
+        }
+
+        c[i * p + j] += alpha * c00;
+        c[i * p + j + 1] += alpha * c01;
+        c[(i + 1) * p + j] += alpha * c10;
+        c[(i + 1) * p + j + 1] += alpha * c11;
+    }
+
+    private static double dot(double[] x, int xOffset, double[] y, int yOffset, int from, int to) {
+        return Kernels.dot(x, xOffset + from, y, yOffset + from, to - from);
+    }
+}
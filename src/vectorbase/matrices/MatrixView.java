@@ -0,0 +1,150 @@
+package vectorbase.matrices;
+
+// Read-only window on the row-major array of another matrix: element (i, j) is at
+// offset + i' * rowStride + j' * columnStride, where i' and j' step over the skipped row and column (minors).
+// Transposes, blocks, rows, columns and minors are all views; nothing is copied until a kernel needs a contiguous
+// array, and then only once. Views of views without skips are taken on the original array.
+final class MatrixView extends Matrix {
+    // No skipped row or column.
+    private static final int NONE = Integer.MAX_VALUE;
+
+    private final Matrix source;
+    private final int offset;
+    private final int rowStride;
+    private final int columnStride;
+    private final int skippedRow;
+    private final int skippedColumn;
+    private volatile double[] dense;
+
+    private MatrixView(Matrix source, int rowCount, int columnCount, int offset, int rowStride, int columnStride, int skippedRow, int skippedColumn) {
+        super(rowCount, columnCount);
+        this.source = source;
+        this.offset = offset;
+        this.rowStride = rowStride;
+        this.columnStride = columnStride;
+        this.skippedRow = skippedRow;
+        this.skippedColumn = skippedColumn;
+    }
+
+    static Matrix transpose(Matrix m) {
+        if (m instanceof MatrixView v && v.skippedRow == NONE && v.skippedColumn == NONE) {
+            Matrix whole = v.transposedSource();
+            if (whole != null) return whole;
+
+            return new MatrixView(v.source, v.getColumnCount(), v.getRowCount(), v.offset, v.columnStride, v.rowStride, NONE, NONE);
+        }
+
+        return new MatrixView(m, m.getColumnCount(), m.getRowCount(), 0, 1, m.getColumnCount(), NONE, NONE);
+    }
+
+    // rowCount x columnCount elements of m from (row, column) on.
+    static Matrix block(Matrix m, int row, int column, int rowCount, int columnCount) {
+        if (row < 0 || column < 0 || rowCount <= 0 || columnCount <= 0 ||
+            row + rowCount > m.getRowCount() || column + columnCount > m.getColumnCount()
+        ) throw new RuntimeException("Block is not inside the matrix.");
+
+        if (m instanceof MatrixView v && v.skippedRow == NONE && v.skippedColumn == NONE) {
+            return new MatrixView(v.source, rowCount, columnCount, v.index(row, column), v.rowStride, v.columnStride, NONE, NONE);
+        }
+
+        return new MatrixView(m, rowCount, columnCount, row * m.getColumnCount() + column, m.getColumnCount(), 1, NONE, NONE);
+    }
+
+    // m without row i and column j.
+    static Matrix minor(Matrix m, int i, int j) {
+        if (i < 0 || j < 0 || i >= m.getRowCount() || j >= m.getColumnCount()) throw new RuntimeException("Row or column is not in the matrix.");
+
+        if (m instanceof MatrixView v && v.skippedRow == NONE && v.skippedColumn == NONE) {
+            return new MatrixView(v.source, m.getRowCount() - 1, m.getColumnCount() - 1, v.offset, v.rowStride, v.columnStride, i, j);
+        }
+
+        return new MatrixView(m, m.getRowCount() - 1, m.getColumnCount() - 1, 0, m.getColumnCount(), 1, i, j);
+    }
+
+    private int index(int i, int j) {
+        int row = i < this.skippedRow ? i : i + 1;
+        int column = j < this.skippedColumn ? j : j + 1;
+
+        return this.offset + row * this.rowStride + column * this.columnStride;
+    }
+
+    // The source when this is exactly its transpose, so the kernels can read it with their transposed variant.
+    @Override
+    Matrix transposedSource() {
+        boolean whole = this.offset == 0 && this.rowStride == 1 && this.columnStride == this.source.getColumnCount() &&
+            this.source.getColumnCount() == this.getRowCount() && this.source.getRowCount() == this.getColumnCount() &&
+            this.skippedRow == NONE && this.skippedColumn == NONE;
+
+        return whole ? this.source : null;
+    }
+
+    @Override
+    double[] data() {
+        double[] data = this.dense;
+        if (data == null) {
+            int rowCount = this.getRowCount();
+            int columnCount = this.getColumnCount();
+            double[] source = this.source.data();
+
+            data = new double[rowCount * columnCount];
+            for (int i = 0; i < rowCount; i++) {
+                if (this.columnStride == 1 && this.skippedColumn == NONE) {
+                    System.arraycopy(source, index(i, 0), data, i * columnCount, columnCount);
+                    continue;
+                }
+
+                for (int j = 0; j < columnCount; j++) {
+                    data[i * columnCount + j] = source[index(i, j)];
+                }
+            }
+
+            this.dense = data;
+        }
+
+        return data;
+    }
+
+    @Override
+    public double get(int row, int col) {
+        if (row < 0 || col < 0 || row >= this.getRowCount() || col >= this.getColumnCount()) throw new ArrayIndexOutOfBoundsException();
+
+        return this.source.data()[index(row, col)];
+    }
+
+    @Override
+    public double[] getRow(int row) {
+        double[] source = this.source.data();
+        double[] elements = new double[this.getColumnCount()];
+        for (int j = 0; j < elements.length; j++) {
+            elements[j] = source[index(row, j)];
+        }
+
+        return elements;
+    }
+
+    @Override
+    public double[] getColumn(int col) {
+        double[] source = this.source.data();
+        double[] elements = new double[this.getRowCount()];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = source[index(i, col)];
+        }
+
+        return elements;
+    }
+
+    // The transpose of the source applies as the source's transpose product, in place.
+    @Override
+    public void apply(double[] x, double[] y) {
+        Matrix whole = transposedSource();
+        if (whole != null) whole.applyTranspose(x, y);
+        else super.apply(x, y);
+    }
+
+    @Override
+    public void applyTranspose(double[] x, double[] y) {
+        Matrix whole = transposedSource();
+        if (whole != null) whole.apply(x, y);
+        else super.applyTranspose(x, y);
+    }
+}
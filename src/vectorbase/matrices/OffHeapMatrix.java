@@ -0,0 +1,708 @@
+package vectorbase.matrices;
+
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+import vectorbase.VectorBase;
+import vectorbase.kernels.Kernels;
+import vectorbase.matrices.vectors.Vector;
+import vectorbase.matrices.vectors.VectorSet;
+
+import java.lang.ref.Cleaner;
+import java.util.Arrays;
+
+// Dense matrix whose row-major elements live outside the Java heap, in a native memory segment, so that matrices
+// larger than the heap (and than 2^31 elements) cause no GC work. Needs --add-modules jdk.incubator.foreign.
+// The memory belongs to a ResourceScope: either its own, released by close() (or by a cleaner once the matrix is
+// unreachable), or one of the caller, released when the caller closes it. A confined scope can only be used by the
+// thread that created it, a shared one by any thread.
+// Products, sums, elimination, solve and the null space stream the matrix through small heap buffers, a block of
+// rows at a time, and their matrix results are off-heap too, in a scope of their own of the same kind. So does a
+// product of a heap matrix with an off-heap one (see Matrix.multiplyWith).
+// Every other operation works on one heap copy of the elements, so it needs the matrix to fit in an array.
+public class OffHeapMatrix extends Matrix implements AutoCloseable {
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    // Elements per heap buffer of the streaming operations.
+    private static final int TILE = 1 << 20;
+
+    private final MemorySegment segment;
+    private final ResourceScope scope;
+    // Whether close() releases the scope: false for a scope of the caller.
+    private final boolean owned;
+
+    private OffHeapMatrix(int rowCount, int columnCount, ResourceScope scope, boolean owned) {
+        // Zero-filled.
+        this(rowCount, columnCount, MemorySegment.allocateNative((long) rowCount * columnCount * Double.BYTES, Double.BYTES, scope), scope, owned);
+    }
+
+    // Over existing memory, e.g. a mapped file (see MatrixFile).
+    OffHeapMatrix(int rowCount, int columnCount, MemorySegment segment, ResourceScope scope, boolean owned) {
+        super(rowCount, columnCount);
+        this.segment = segment;
+        this.scope = scope;
+        this.owned = owned;
+    }
+
+    // Zeros, in a scope of its own confined to this thread.
+    public static OffHeapMatrix allocate(int rowCount, int columnCount) {
+        return allocate(rowCount, columnCount, false);
+    }
+
+    public static OffHeapMatrix allocate(int rowCount, int columnCount, boolean shared) {
+        return new OffHeapMatrix(rowCount, columnCount, newScope(shared), true);
+    }
+
+    // Zeros, in the caller's scope.
+    public static OffHeapMatrix allocate(int rowCount, int columnCount, ResourceScope scope) {
+        return new OffHeapMatrix(rowCount, columnCount, scope, false);
+    }
+
+    public static OffHeapMatrix copyOf(Matrix m) {
+        return copyOf(m, false);
+    }
+
+    public static OffHeapMatrix copyOf(Matrix m, boolean shared) {
+        OffHeapMatrix copy = allocate(m.getRowCount(), m.getColumnCount(), shared);
+        copy.copyFrom(m);
+
+        return copy;
+    }
+
+    static ResourceScope newScope(boolean shared) {
+        return shared ? ResourceScope.newSharedScope(CLEANER) : ResourceScope.newConfinedScope(CLEANER);
+    }
+
+    private void copyFrom(Matrix m) {
+        if (m instanceof OffHeapMatrix o) this.segment.copyFrom(o.segment);
+        else this.segment.copyFrom(MemorySegment.ofArray(m.data()));
+    }
+
+    // An empty matrix of the given size for a result, in a new scope like this one.
+    private OffHeapMatrix newMatrix(int rowCount, int columnCount) {
+        return allocate(rowCount, columnCount, isShared());
+    }
+
+    private OffHeapMatrix copy() {
+        OffHeapMatrix copy = newMatrix(this.getRowCount(), this.getColumnCount());
+        copy.segment.copyFrom(this.segment);
+
+        return copy;
+    }
+
+    MemorySegment segment() {
+        return this.segment;
+    }
+
+    // set and setRow change the elements, so nothing derived from them can be kept.
+    @Override
+    boolean cachesDerivedResults() {
+        return false;
+    }
+
+    public boolean isShared() {
+        return this.scope.ownerThread() == null;
+    }
+
+    // Releases the memory now, if the scope is this matrix's own. The matrix cannot be used afterwards.
+    @Override
+    public void close() {
+        if (this.owned) this.scope.close();
+    }
+
+    private long index(int row, int col) {
+        return (long) row * this.getColumnCount() + col;
+    }
+
+    // 'length' elements from (row, col) on, which can run over several rows, into a heap array.
+    void read(int row, int col, double[] into, int offset, int length) {
+        MemorySegment target = MemorySegment.ofArray(into).asSlice((long) offset * Double.BYTES, (long) length * Double.BYTES);
+        target.copyFrom(this.segment.asSlice(index(row, col) * Double.BYTES, (long) length * Double.BYTES));
+    }
+
+    void write(int row, int col, double[] from, int offset, int length) {
+        MemorySegment source = MemorySegment.ofArray(from).asSlice((long) offset * Double.BYTES, (long) length * Double.BYTES);
+        this.segment.asSlice(index(row, col) * Double.BYTES, (long) length * Double.BYTES).copyFrom(source);
+    }
+
+    // Rows [rowFrom, rowTo) and columns [colFrom, colTo) of m, packed row-major into 'into'.
+    static void readBlock(Matrix m, int rowFrom, int rowTo, int colFrom, int colTo, double[] into) {
+        int width = colTo - colFrom;
+        if (m instanceof OffHeapMatrix o && width == o.getColumnCount()) {
+            o.read(rowFrom, 0, into, 0, (rowTo - rowFrom) * width);
+            return;
+        }
+
+        double[] data = m instanceof OffHeapMatrix ? null : m.data();
+        for (int i = rowFrom; i < rowTo; i++) {
+            if (data == null) ((OffHeapMatrix) m).read(i, colFrom, into, (i - rowFrom) * width, width);
+            else System.arraycopy(data, i * m.getColumnCount() + colFrom, into, (i - rowFrom) * width, width);
+        }
+    }
+
+    // Whole rows per block of the streaming loops.
+    private int rowsPerBlock() {
+        return Math.max(1, Math.min(this.getRowCount(), TILE / this.getColumnCount()));
+    }
+
+    // A heap copy of the elements; only for the operations that do not stream.
+    @Override
+    double[] data() {
+        if ((long) this.getRowCount() * this.getColumnCount() > Integer.MAX_VALUE - 8) throw new RuntimeException("Matrix is too large to be copied to the heap.");
+
+        return this.segment.toDoubleArray();
+    }
+
+    @Override
+    double[] copyData() {
+        return data();
+    }
+
+    @Override
+    public double get(int row, int col) {
+        return MemoryAccess.getDoubleAtIndex(this.segment, index(row, col));
+    }
+
+    public void set(int row, int col, double value) {
+        MemoryAccess.setDoubleAtIndex(this.segment, index(row, col), value);
+    }
+
+    public void setRow(int row, double[] elements) {
+        if (elements.length != this.getColumnCount()) throw new RuntimeException("Row does not have " + this.getColumnCount() + " elements.");
+
+        write(row, 0, elements, 0, elements.length);
+    }
+
+    @Override
+    public double[] getRow(int row) {
+        double[] elements = new double[this.getColumnCount()];
+        read(row, 0, elements, 0, elements.length);
+
+        return elements;
+    }
+
+    @Override
+    public double[] getColumn(int col) {
+        double[] elements = new double[this.getRowCount()];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = get(i, col);
+        }
+
+        return elements;
+    }
+
+    @Override
+    public void apply(double[] x, double[] y) {
+        int n = this.getRowCount();
+        int m = this.getColumnCount();
+        int rows = rowsPerBlock();
+        double[] block = new double[rows * m];
+
+        for (int i0 = 0; i0 < n; i0 += rows) {
+            int i1 = Math.min(i0 + rows, n);
+            read(i0, 0, block, 0, (i1 - i0) * m);
+
+            for (int i = i0; i < i1; i++) {
+                y[i] = Kernels.dot(block, (i - i0) * m, x, 0, m);
+            }
+        }
+    }
+
+    @Override
+    public void applyTranspose(double[] x, double[] y) {
+        int n = this.getRowCount();
+        int m = this.getColumnCount();
+        int rows = rowsPerBlock();
+        double[] block = new double[rows * m];
+
+        Arrays.fill(y, 0, m, 0);
+        for (int i0 = 0; i0 < n; i0 += rows) {
+            int i1 = Math.min(i0 + rows, n);
+            read(i0, 0, block, 0, (i1 - i0) * m);
+
+            for (int i = i0; i < i1; i++) {
+                if (x[i] != 0) Kernels.axpy(x[i], block, (i - i0) * m, y, 0, m);
+            }
+        }
+    }
+
+    // Row blocks of the result, each the sum of the products of tiles of this matrix and of m. The tiles fit the
+    // heap buffers whatever the size of the operands, and m can be off-heap as well.
+    @Override
+    public OffHeapMatrix multiplyWith(Matrix m) {
+        if (this.getColumnCount() != m.getRowCount()) throw new RuntimeException("Those matrices cannot be multiplied.");
+        // Not through the dense form of the diagonal, which is as large as the square of the column count.
+        if (m instanceof DiagonalMatrix d) return scaleColumnsBy(d);
+
+        return multiply(this, m, isShared());
+    }
+
+    // The tiled product for Matrix.multiplyWith as well, when only the right operand is off-heap. The result is in a
+    // new scope of the given kind.
+    static OffHeapMatrix multiply(Matrix left, Matrix m, boolean shared) {
+        int n = left.getRowCount();
+        int k = left.getColumnCount();
+        int p = m.getColumnCount();
+        OffHeapMatrix result = allocate(n, p, shared);
+
+        // A heap operand is read through its elements once, not through a copy (e.g. of a view) per tile.
+        Matrix a0 = left instanceof OffHeapMatrix ? left : new Matrix(n, k, left.data());
+        Matrix b0 = m instanceof OffHeapMatrix ? m : new Matrix(k, p, m.data());
+
+        int inner = Math.max(1, Math.min(k, TILE / p));
+        int rows = Math.max(1, Math.min(n, TILE / Math.max(inner, p)));
+        double[] a = new double[rows * inner];
+        double[] b = new double[inner * p];
+        double[] c = new double[rows * p];
+
+        // When m fits in one tile it is packed for the multiplier once, not once per row block.
+        double[] packed = null;
+        if (inner == k) {
+            readBlock(b0, 0, k, 0, p, b);
+            packed = MatrixMultiplier.transpose(b, k, p);
+        }
+
+        for (int i0 = 0; i0 < n; i0 += rows) {
+            int i1 = Math.min(i0 + rows, n);
+            Arrays.fill(c, 0);
+
+            for (int l0 = 0; l0 < k; l0 += inner) {
+                int l1 = Math.min(l0 + inner, k);
+                readBlock(a0, i0, i1, l0, l1, a);
+
+                if (packed != null) {
+                    MatrixMultiplier.multiplyAdd(1, a, false, packed, true, c, i1 - i0, k, p);
+                } else {
+                    readBlock(b0, l0, l1, 0, p, b);
+                    MatrixMultiplier.multiplyAdd(1, a, false, b, false, c, i1 - i0, l1 - l0, p);
+                }
+            }
+
+            result.write(i0, 0, c, 0, (i1 - i0) * p);
+        }
+
+        return result;
+    }
+
+    // D * this for DiagonalMatrix.multiplyWith: every row scaled by its diagonal element, a block of rows at a time.
+    OffHeapMatrix scaleRowsBy(DiagonalMatrix d) {
+        OffHeapMatrix result = newMatrix(this.getRowCount(), this.getColumnCount());
+
+        int n = this.getRowCount();
+        int m = this.getColumnCount();
+        int rows = rowsPerBlock();
+        double[] block = new double[rows * m];
+
+        for (int i0 = 0; i0 < n; i0 += rows) {
+            int i1 = Math.min(i0 + rows, n);
+            read(i0, 0, block, 0, (i1 - i0) * m);
+            for (int i = i0; i < i1; i++) {
+                Kernels.scale(d.getDiagonalElement(i), block, (i - i0) * m, m);
+            }
+            result.write(i0, 0, block, 0, (i1 - i0) * m);
+        }
+
+        return result;
+    }
+
+    // this * D: every column scaled by its diagonal element, a block of rows at a time.
+    OffHeapMatrix scaleColumnsBy(DiagonalMatrix d) {
+        OffHeapMatrix result = newMatrix(this.getRowCount(), this.getColumnCount());
+
+        int n = this.getRowCount();
+        int m = this.getColumnCount();
+        int rows = rowsPerBlock();
+        double[] block = new double[rows * m];
+        double[] diagonal = d.getDiagonal();
+
+        for (int i0 = 0; i0 < n; i0 += rows) {
+            int length = (Math.min(i0 + rows, n) - i0) * m;
+            read(i0, 0, block, 0, length);
+            for (int offset = 0; offset < length; offset += m) {
+                for (int j = 0; j < m; j++) {
+                    block[offset + j] *= diagonal[j];
+                }
+            }
+            result.write(i0, 0, block, 0, length);
+        }
+
+        return result;
+    }
+
+    @Override
+    public OffHeapMatrix scaleWith(double c) {
+        OffHeapMatrix result = newMatrix(this.getRowCount(), this.getColumnCount());
+
+        int n = this.getRowCount();
+        int m = this.getColumnCount();
+        int rows = rowsPerBlock();
+        double[] block = new double[rows * m];
+
+        for (int i0 = 0; i0 < n; i0 += rows) {
+            int length = (Math.min(i0 + rows, n) - i0) * m;
+            read(i0, 0, block, 0, length);
+            Kernels.scale(c, block, 0, length);
+            result.write(i0, 0, block, 0, length);
+        }
+
+        return result;
+    }
+
+    @Override
+    public OffHeapMatrix add(VectorBase v) {
+        Matrix other = checkSameDimensions(v);
+        OffHeapMatrix result = newMatrix(this.getRowCount(), this.getColumnCount());
+
+        int n = this.getRowCount();
+        int m = this.getColumnCount();
+        int rows = rowsPerBlock();
+        double[] block = new double[rows * m];
+        double[] otherBlock = new double[rows * m];
+
+        for (int i0 = 0; i0 < n; i0 += rows) {
+            int i1 = Math.min(i0 + rows, n);
+            int length = (i1 - i0) * m;
+            read(i0, 0, block, 0, length);
+            readBlock(other, i0, i1, 0, m, otherBlock);
+            Kernels.axpy(1, otherBlock, 0, block, 0, length);
+            result.write(i0, 0, block, 0, length);
+        }
+
+        return result;
+    }
+
+    @Override
+    public double innerProductWith(VectorBase v) {
+        Matrix other = checkSameDimensions(v);
+
+        int n = this.getRowCount();
+        int m = this.getColumnCount();
+        int rows = rowsPerBlock();
+        double[] block = new double[rows * m];
+        double[] otherBlock = new double[rows * m];
+
+        double sum = 0;
+        for (int i0 = 0; i0 < n; i0 += rows) {
+            int i1 = Math.min(i0 + rows, n);
+            read(i0, 0, block, 0, (i1 - i0) * m);
+            readBlock(other, i0, i1, 0, m, otherBlock);
+            sum += Kernels.dot(block, 0, otherBlock, 0, (i1 - i0) * m);
+        }
+
+        return sum;
+    }
+
+    private Matrix checkSameDimensions(VectorBase v) {
+        if (!(v instanceof Matrix m)) throw new RuntimeException("Not a valid matrix.");
+        if (this.getRowCount() != m.getRowCount() ||
+            this.getColumnCount() != m.getColumnCount()
+        ) throw new RuntimeException("Matrices are not in the same dimension.");
+
+        return m;
+    }
+
+    // Square tiles, so that both the rows read and the rows written are contiguous runs.
+    @Override
+    public OffHeapMatrix getTranspose() {
+        int n = this.getRowCount();
+        int m = this.getColumnCount();
+        OffHeapMatrix result = newMatrix(m, n);
+
+        int side = (int) Math.sqrt(TILE);
+        double[] block = new double[side * side];
+        double[] transposed = new double[side * side];
+
+        for (int i0 = 0; i0 < n; i0 += side) {
+            int height = Math.min(side, n - i0);
+            for (int j0 = 0; j0 < m; j0 += side) {
+                int width = Math.min(side, m - j0);
+
+                readBlock(this, i0, i0 + height, j0, j0 + width, block);
+                for (int i = 0; i < height; i++) {
+                    for (int j = 0; j < width; j++) {
+                        transposed[j * height + i] = block[i * width + j];
+                    }
+                }
+
+                for (int j = 0; j < width; j++) {
+                    result.write(j0 + j, i0, transposed, j * height, height);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    // Blocks, rows, columns and minors are off-heap copies rather than views: views read single elements through
+    // the heap array of their source.
+    @Override
+    public OffHeapMatrix getSubmatrix(int row, int column, int rowCount, int columnCount) {
+        if (row < 0 || column < 0 || rowCount <= 0 || columnCount <= 0 ||
+            row + rowCount > this.getRowCount() || column + columnCount > this.getColumnCount()
+        ) throw new RuntimeException("Block is not inside the matrix.");
+
+        OffHeapMatrix result = newMatrix(rowCount, columnCount);
+        for (int i = 0; i < rowCount; i++) {
+            copyRun(row + i, column, result, i, 0, columnCount);
+        }
+
+        return result;
+    }
+
+    @Override
+    public OffHeapMatrix getRowView(int row) {
+        return getSubmatrix(row, 0, 1, this.getColumnCount());
+    }
+
+    @Override
+    public OffHeapMatrix getColumnView(int column) {
+        return getSubmatrix(0, column, this.getRowCount(), 1);
+    }
+
+    @Override
+    public OffHeapMatrix getMinor(int i, int j) {
+        if (i < 0 || j < 0 || i >= this.getRowCount() || j >= this.getColumnCount()) throw new RuntimeException("Row or column is not in the matrix.");
+
+        int m = this.getColumnCount();
+        OffHeapMatrix result = newMatrix(this.getRowCount() - 1, m - 1);
+        for (int row = 0, target = 0; row < this.getRowCount(); row++) {
+            if (row == i) continue;
+
+            copyRun(row, 0, result, target, 0, j);
+            copyRun(row, j + 1, result, target, j, m - j - 1);
+            target++;
+        }
+
+        return result;
+    }
+
+    // 'length' elements from (row, col) of this matrix to (toRow, toCol) of 'to', native to native.
+    private void copyRun(int row, int col, OffHeapMatrix to, int toRow, int toCol, int length) {
+        if (length == 0) return;
+
+        long bytes = (long) length * Double.BYTES;
+        to.segment.asSlice(to.index(toRow, toCol) * Double.BYTES, bytes).copyFrom(this.segment.asSlice(index(row, col) * Double.BYTES, bytes));
+    }
+
+    @Override
+    public OffHeapMatrix getEchelonForm() {
+        OffHeapMatrix work = copy();
+        work.eliminate(null, 0, 0, false);
+
+        return work;
+    }
+
+    @Override
+    public OffHeapMatrix getRowReducedEchelonForm() {
+        OffHeapMatrix work = copy();
+        work.reduceBack(work.eliminate(null, 0, 0, false), null, 0);
+
+        return work;
+    }
+
+    @Override
+    public VectorSet getNullSpace() {
+        // Rounding residue must not count as a pivot, as in solve.
+        double tolerance = Math.max(this.getRowCount(), this.getColumnCount()) * Math.ulp(largestElement());
+
+        try (OffHeapMatrix work = copy()) {
+            int[] pivotColumns = work.eliminate(null, 0, tolerance, true);
+            work.reduceBack(pivotColumns, null, 0);
+
+            return new VectorSet(work.nullSpaceBasis(pivotColumns));
+        }
+    }
+
+    // Elimination with partial pivoting on an off-heap copy. Full column rank ends in back substitution; otherwise
+    // the reduced echelon form gives the particular solution and the null space, as in Matrix.solve.
+    @Override
+    public Solution solve(Vector v) {
+        int n = this.getRowCount();
+        int m = this.getColumnCount();
+        if (v.getDimension() != n) throw new RuntimeException("Vector is not in the dimension of the matrix.");
+
+        double[] b = new double[n];
+        double largest = largestElement();
+        for (int i = 0; i < n; i++) {
+            b[i] = v.get(i);
+            largest = Math.max(largest, Math.abs(b[i]));
+        }
+
+        // Rounding residue must not turn a dependent row into a pivot, or into an inconsistency.
+        double tolerance = Math.max(n, m) * Math.ulp(largest);
+
+        try (OffHeapMatrix work = copy()) {
+            int[] pivotColumns = work.eliminate(b, 1, tolerance, true);
+            int rank = pivotColumns.length;
+
+            for (int i = rank; i < n; i++) {
+                if (Math.abs(b[i]) > tolerance) return new Solution(null, null);
+            }
+
+            if (rank == m) {
+                double[] x = new double[m];
+                double[] row = new double[m];
+                for (int i = m - 1; i >= 0; i--) {
+                    work.read(i, i, row, 0, m - i);
+                    x[i] = (b[i] - Kernels.dot(row, 1, x, i + 1, m - i - 1)) / row[0];
+                }
+
+                return new Solution(new Vector(x), null);
+            }
+
+            work.reduceBack(pivotColumns, b, 1);
+
+            // Free variables are 0.
+            double[] solution = new double[m];
+            for (int r = 0; r < rank; r++) {
+                solution[pivotColumns[r]] = b[r];
+            }
+
+            return new Solution(new Vector(solution), new VectorSet(work.nullSpaceBasis(pivotColumns)));
+        }
+    }
+
+    double largestElement() {
+        int n = this.getRowCount();
+        int m = this.getColumnCount();
+        int rows = rowsPerBlock();
+        double[] block = new double[rows * m];
+
+        double largest = 0;
+        for (int i0 = 0; i0 < n; i0 += rows) {
+            int length = (Math.min(i0 + rows, n) - i0) * m;
+            read(i0, 0, block, 0, length);
+            for (int i = 0; i < length; i++) {
+                largest = Math.max(largest, Math.abs(block[i]));
+            }
+        }
+
+        return largest;
+    }
+
+    // Forward elimination in place, repeating every row operation on b (rowCount x bColumnCount, on the heap).
+    // The pivot is the largest element of its column with partial pivoting, the first non-zero one otherwise (as in
+    // RowReducer). Only the pivot row and the row being updated are on the heap. Returns the pivot columns.
+    private int[] eliminate(double[] b, int bColumnCount, double tolerance, boolean partialPivoting) {
+        int n = this.getRowCount();
+        int m = this.getColumnCount();
+        double[] pivot = new double[m];
+        double[] row = new double[m];
+        int[] pivotColumns = new int[Math.min(n, m)];
+
+        int pivotsRow = 0;
+        for (int i = 0; i < m && pivotsRow < n; i++) {
+            int best = -1;
+            double bestValue = tolerance;
+            for (int j = pivotsRow; j < n; j++) {
+                double el = Math.abs(get(j, i));
+                if (el <= bestValue) continue;
+
+                best = j;
+                bestValue = el;
+                if (!partialPivoting) break;
+            }
+
+            if (best < 0) continue;
+            if (best != pivotsRow) interchangeRows(pivotsRow, best, pivot, row, b, bColumnCount);
+
+            int width = m - i;
+            read(pivotsRow, i, pivot, 0, width);
+
+            for (int j = pivotsRow + 1; j < n; j++) {
+                double el = get(j, i);
+                if (el == 0) continue;
+
+                double c = -1 * (el / pivot[0]);
+                read(j, i, row, 0, width);
+                Kernels.axpy(c, pivot, 1, row, 1, width - 1);
+                // The pivot column is set exactly, not left as a rounding residue.
+                row[0] = 0;
+                write(j, i, row, 0, width);
+
+                if (b != null) Kernels.axpy(c, b, pivotsRow * bColumnCount, b, j * bColumnCount, bColumnCount);
+            }
+
+            pivotColumns[pivotsRow] = i;
+            pivotsRow++;
+        }
+
+        return Arrays.copyOf(pivotColumns, pivotsRow);
+    }
+
+    // From the echelon form to the reduced one: every pivot scaled to 1 and cleared from the rows above it.
+    private void reduceBack(int[] pivotColumns, double[] b, int bColumnCount) {
+        int m = this.getColumnCount();
+        double[] pivot = new double[m];
+        double[] row = new double[m];
+
+        for (int r = 0; r < pivotColumns.length; r++) {
+            int i = pivotColumns[r];
+            int width = m - i;
+            read(r, i, pivot, 0, width);
+
+            if (pivot[0] != 1) {
+                double c = 1 / pivot[0];
+                Kernels.scale(c, pivot, 1, width - 1);
+                pivot[0] = 1;
+                write(r, i, pivot, 0, width);
+
+                if (b != null) Kernels.scale(c, b, r * bColumnCount, bColumnCount);
+            }
+
+            for (int j = 0; j < r; j++) {
+                double el = get(j, i);
+                if (el == 0) continue;
+
+                read(j, i, row, 0, width);
+                Kernels.axpy(-el, pivot, 1, row, 1, width - 1);
+                row[0] = 0;
+                write(j, i, row, 0, width);
+
+                if (b != null) Kernels.axpy(-el, b, r * bColumnCount, b, j * bColumnCount, bColumnCount);
+            }
+        }
+    }
+
+    void interchangeRows(int r1, int r2, double[] first, double[] second, double[] b, int bColumnCount) {
+        int m = this.getColumnCount();
+        read(r1, 0, first, 0, m);
+        read(r2, 0, second, 0, m);
+        write(r1, 0, second, 0, m);
+        write(r2, 0, first, 0, m);
+
+        for (int k = 0; b != null && k < bColumnCount; k++) {
+            double tmp = b[r1 * bColumnCount + k];
+            b[r1 * bColumnCount + k] = b[r2 * bColumnCount + k];
+            b[r2 * bColumnCount + k] = tmp;
+        }
+    }
+
+    // As Matrix.nullSpaceBasis, on the reduced echelon form held by this matrix.
+    private Vector[] nullSpaceBasis(int[] pivotColumns) {
+        int m = this.getColumnCount();
+        boolean[] pivots = new boolean[m];
+        for (int col : pivotColumns) {
+            pivots[col] = true;
+        }
+
+        Vector[] nullSpace = new Vector[m - pivotColumns.length];
+        int vectorIndex = 0;
+
+        for (int i = 0; i < m; i++) {
+            if (pivots[i]) continue;
+
+            double[] vector = new double[m];
+            vector[i] = 1;
+
+            for (int r = 0; r < pivotColumns.length; r++) {
+                vector[pivotColumns[r]] = -1 * get(r, i);
+            }
+
+            nullSpace[vectorIndex] = new Vector(vector);
+            vectorIndex++;
+        }
+
+        return nullSpace;
+    }
+}
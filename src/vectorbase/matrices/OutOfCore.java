@@ -0,0 +1,331 @@
+package vectorbase.matrices;
+
+import vectorbase.kernels.Kernels;
+import vectorbase.matrices.vectors.Vector;
+
+import java.util.Arrays;
+
+// Multiplication and LU / Cholesky factorization of matrices that do not fit in memory, usually files mapped with
+// MatrixFile. The work is done on tiles copied into heap buffers whose total size stays within a memory budget (in
+// bytes), and every result is written back to its off-heap matrix tile by tile.
+// Larger budgets mean larger tiles and fewer passes: each tile is read about (dimension / tile side) times.
+public final class OutOfCore {
+    // Side of the largest square tile a heap array can hold.
+    private static final int MAX_TILE = 46340;
+
+    private OutOfCore() {}
+
+    // PA = LU, L (unit lower, diagonal not stored) and U packed in the factored matrix as in LUDecomposition.
+    public record LU(OffHeapMatrix lu, int[] permutation, boolean singular) {
+        public Vector solve(Vector v) {
+            if (singular) throw new RuntimeException("Matrix is not invertible.");
+
+            int n = lu.getRowCount();
+            if (v.getDimension() != n) throw new RuntimeException("Vector is not in the dimension of the matrix.");
+
+            double[] x = new double[n];
+            for (int i = 0; i < n; i++) {
+                x[i] = v.get(permutation[i]);
+            }
+
+            // One row of the factors on the heap at a time, each read once per substitution.
+            double[] row = new double[n];
+            for (int i = 1; i < n; i++) {
+                lu.read(i, 0, row, 0, i);
+                x[i] -= Kernels.dot(row, 0, x, 0, i);
+            }
+
+            for (int i = n - 1; i >= 0; i--) {
+                lu.read(i, i, row, i, n - i);
+                x[i] = (x[i] - Kernels.dot(row, i + 1, x, i + 1, n - i - 1)) / row[i];
+            }
+
+            return new Vector(x);
+        }
+    }
+
+    // A = R^T R, R upper triangular in the upper triangle of the factored matrix as in CholeskyDecomposition.
+    public record Cholesky(OffHeapMatrix r, boolean positiveDefinite) {
+        public Vector solve(Vector v) {
+            if (!positiveDefinite) throw new RuntimeException("Matrix is not positive definite.");
+
+            int n = r.getRowCount();
+            if (v.getDimension() != n) throw new RuntimeException("Vector is not in the dimension of the matrix.");
+
+            double[] x = new double[n];
+            for (int i = 0; i < n; i++) {
+                x[i] = v.get(i);
+            }
+
+            double[] row = new double[n];
+            for (int i = 0; i < n; i++) {
+                r.read(i, i, row, i, n - i);
+                x[i] /= row[i];
+                Kernels.axpy(-x[i], row, i + 1, x, i + 1, n - i - 1);
+            }
+
+            for (int i = n - 1; i >= 0; i--) {
+                r.read(i, i, row, i, n - i);
+                x[i] = (x[i] - Kernels.dot(row, i + 1, x, i + 1, n - i - 1)) / row[i];
+            }
+
+            return new Vector(x);
+        }
+    }
+
+    // result = a * b, one result tile at a time: the tile is summed over the tiles of a along its rows and of b down
+    // its columns, then written out. Tiles of a are read (columns of b / tile side) times and tiles of b (rows of a /
+    // tile side) times. Four tiles are on the heap at once, the packed copy of b's included.
+    public static void multiply(Matrix a, Matrix b, OffHeapMatrix result, long memory) {
+        if (a.getColumnCount() != b.getRowCount()) throw new RuntimeException("Those matrices cannot be multiplied.");
+        if (result.getRowCount() != a.getRowCount() || result.getColumnCount() != b.getColumnCount()) {
+            throw new RuntimeException("Result is not " + a.getRowCount() + "x" + b.getColumnCount() + ".");
+        }
+        if (result == a || result == b) throw new RuntimeException("Result cannot be an operand.");
+
+        int n = a.getRowCount();
+        int k = a.getColumnCount();
+        int p = b.getColumnCount();
+        int tile = tileSide(memory, 4);
+
+        double[] aTile = new double[Math.min(tile, n) * Math.min(tile, k)];
+        double[] bTile = new double[Math.min(tile, k) * Math.min(tile, p)];
+        double[] cTile = new double[Math.min(tile, n) * Math.min(tile, p)];
+
+        int tilesOfK = (k + tile - 1) / tile;
+        // The tile of a in the buffer, as its index along k; -1 when there is none for this row of tiles.
+        int loaded = -1;
+
+        for (int i0 = 0; i0 < n; i0 += tile) {
+            int i1 = Math.min(i0 + tile, n);
+            loaded = -1;
+
+            for (int j0 = 0, column = 0; j0 < p; j0 += tile, column++) {
+                int j1 = Math.min(j0 + tile, p);
+                Arrays.fill(cTile, 0, (i1 - i0) * (j1 - j0), 0);
+
+                // Back and forth along k, so that the last tile of a is still loaded for the next result tile.
+                for (int step = 0; step < tilesOfK; step++) {
+                    int t = column % 2 == 0 ? step : tilesOfK - 1 - step;
+                    int l0 = t * tile;
+                    int l1 = Math.min(l0 + tile, k);
+
+                    if (t != loaded) {
+                        OffHeapMatrix.readBlock(a, i0, i1, l0, l1, aTile);
+                        loaded = t;
+                    }
+                    OffHeapMatrix.readBlock(b, l0, l1, j0, j1, bTile);
+
+                    MatrixMultiplier.multiplyAdd(1, aTile, false, bTile, false, cTile, i1 - i0, l1 - l0, j1 - j0);
+                }
+
+                writeBlock(result, i0, i1, j0, j1, cTile, false);
+            }
+        }
+    }
+
+    // Factors a square matrix in place, right-looking by panels of columns. The panel (every row below the diagonal,
+    // a few columns) is factored on the heap with partial pivoting; its row interchanges are then applied to the
+    // whole rows, and the rest of the matrix is updated tile by tile. Each element is read and written once per
+    // panel to its left.
+    public static LU factorLU(OffHeapMatrix a, long memory) {
+        int n = checkSquare(a);
+
+        // Pivots below this are rounding residue of an exactly singular matrix, as in LUDecomposition.
+        double tolerance = n * Math.ulp(a.largestElement());
+
+        // The panel, a block of its rows, a block of U and its packed copy, and one tile.
+        int tile = Math.min(n, tileSide(memory, 4));
+        int width = panelWidth(memory, n, tile, n + 3L * tile);
+
+        int[] permutation = new int[n];
+        for (int i = 0; i < n; i++) {
+            permutation[i] = i;
+        }
+        boolean singular = false;
+
+        double[] panel = new double[n * width];
+        double[] lower = new double[tile * width];
+        double[] upper = new double[width * tile];
+        double[] block = new double[tile * tile];
+        double[] first = new double[n];
+        double[] second = new double[n];
+
+        for (int k0 = 0; k0 < n; k0 += width) {
+            int k1 = Math.min(k0 + width, n);
+            int w = k1 - k0;
+            int rows = n - k0;
+
+            OffHeapMatrix.readBlock(a, k0, n, k0, k1, panel);
+
+            // Column by column, over all the rows of the panel.
+            for (int c = 0; c < w; c++) {
+                int best = c;
+                for (int r = c + 1; r < rows; r++) {
+                    if (Math.abs(panel[r * w + c]) > Math.abs(panel[best * w + c])) best = r;
+                }
+
+                if (best != c) {
+                    for (int j = 0; j < w; j++) {
+                        double tmp = panel[c * w + j];
+                        panel[c * w + j] = panel[best * w + j];
+                        panel[best * w + j] = tmp;
+                    }
+
+                    // The whole rows; the columns of the panel are overwritten below.
+                    a.interchangeRows(k0 + c, k0 + best, first, second, null, 0);
+
+                    int tmp = permutation[k0 + c];
+                    permutation[k0 + c] = permutation[k0 + best];
+                    permutation[k0 + best] = tmp;
+                }
+
+                double pivot = panel[c * w + c];
+                if (Math.abs(pivot) <= tolerance) {
+                    singular = true;
+                    continue;
+                }
+
+                for (int r = c + 1; r < rows; r++) {
+                    double el = panel[r * w + c];
+                    if (el == 0) continue;
+
+                    double l = el / pivot;
+                    panel[r * w + c] = l;
+                    Kernels.axpy(-l, panel, c * w + c + 1, panel, r * w + c + 1, w - c - 1);
+                }
+            }
+
+            writeBlock(a, k0, n, k0, k1, panel, false);
+
+            for (int j0 = k1; j0 < n; j0 += tile) {
+                int j1 = Math.min(j0 + tile, n);
+                int columns = j1 - j0;
+
+                // The rows of U right of the panel: forward substitution with the unit lower triangle of the panel.
+                OffHeapMatrix.readBlock(a, k0, k1, j0, j1, upper);
+                for (int i = 1; i < w; i++) {
+                    for (int j = 0; j < i; j++) {
+                        double l = panel[i * w + j];
+                        if (l != 0) Kernels.axpy(-l, upper, j * columns, upper, i * columns, columns);
+                    }
+                }
+                writeBlock(a, k0, k1, j0, j1, upper, false);
+
+                double[] packed = MatrixMultiplier.transpose(upper, w, columns);
+
+                for (int i0 = k1; i0 < n; i0 += tile) {
+                    int i1 = Math.min(i0 + tile, n);
+                    System.arraycopy(panel, (i0 - k0) * w, lower, 0, (i1 - i0) * w);
+
+                    OffHeapMatrix.readBlock(a, i0, i1, j0, j1, block);
+                    MatrixMultiplier.multiplyAdd(-1, lower, false, packed, true, block, i1 - i0, w, columns);
+                    writeBlock(a, i0, i1, j0, j1, block, false);
+                }
+            }
+        }
+
+        return new LU(a, permutation, singular);
+    }
+
+    // Factors a symmetric positive-definite matrix in place into R, right-looking by panels of rows. Only the upper
+    // triangle is read and written; the strictly lower triangle is left as it is. The panel (a few rows, right of
+    // the diagonal) is factored on the heap, then the upper triangle below it is updated tile by tile, each element
+    // read and written once per panel above it.
+    public static Cholesky factorCholesky(OffHeapMatrix a, long memory) {
+        int n = checkSquare(a);
+
+        double largest = 0;
+        for (int i = 0; i < n; i++) {
+            largest = Math.max(largest, Math.abs(a.get(i, i)));
+        }
+        double tolerance = n * Math.ulp(largest);
+
+        // The panel and its transpose, two blocks of its columns and one tile.
+        int tile = Math.min(n, tileSide(memory, 4));
+        int width = panelWidth(memory, n, tile, 2L * n + 2L * tile);
+
+        double[] panel = new double[width * n];
+        double[] left = new double[tile * width];
+        double[] right = new double[tile * width];
+        double[] block = new double[tile * tile];
+
+        for (int k0 = 0; k0 < n; k0 += width) {
+            int k1 = Math.min(k0 + width, n);
+            int w = k1 - k0;
+            int columns = n - k0;
+
+            OffHeapMatrix.readBlock(a, k0, k1, k0, n, panel);
+
+            // Row k becomes row k of R and updates the panel rows below it, as in CholeskyDecomposition.
+            for (int k = 0; k < w; k++) {
+                double d = panel[k * columns + k];
+                if (!(d > tolerance)) return new Cholesky(a, false); // NaN included
+
+                double pivot = Math.sqrt(d);
+                panel[k * columns + k] = pivot;
+                Kernels.scale(1 / pivot, panel, k * columns + k + 1, columns - k - 1);
+
+                for (int i = k + 1; i < w; i++) {
+                    double c = panel[k * columns + i];
+                    if (c != 0) Kernels.axpy(-c, panel, k * columns + i, panel, i * columns + i, columns - i);
+                }
+            }
+
+            writeBlock(a, k0, k1, k0, n, panel, true);
+            if (k1 == n) break;
+
+            // Row i of the transpose is column i of the panel, so that a block of columns is a contiguous copy.
+            double[] transposed = MatrixMultiplier.transpose(panel, w, columns);
+
+            for (int i0 = k1; i0 < n; i0 += tile) {
+                int i1 = Math.min(i0 + tile, n);
+                System.arraycopy(transposed, (i0 - k0) * w, left, 0, (i1 - i0) * w);
+
+                for (int j0 = i0; j0 < n; j0 += tile) {
+                    int j1 = Math.min(j0 + tile, n);
+                    System.arraycopy(transposed, (j0 - k0) * w, right, 0, (j1 - j0) * w);
+
+                    // The upper triangle of a diagonal tile is all that is written back, but all of it is computed.
+                    OffHeapMatrix.readBlock(a, i0, i1, j0, j1, block);
+                    MatrixMultiplier.multiplyAdd(-1, left, false, right, true, block, i1 - i0, w, j1 - j0);
+                    writeBlock(a, i0, i1, j0, j1, block, i0 == j0);
+                }
+            }
+        }
+
+        return new Cholesky(a, true);
+    }
+
+    private static int checkSquare(OffHeapMatrix a) {
+        if (a.getRowCount() != a.getColumnCount()) throw new RuntimeException("Matrix is not square.");
+
+        return a.getRowCount();
+    }
+
+    // The side of a square tile such that 'tiles' of them fit the budget.
+    private static int tileSide(long memory, int tiles) {
+        long elements = memory / Double.BYTES / tiles;
+        if (elements < 1) throw new RuntimeException("Memory budget is too small.");
+
+        return (int) Math.min(MAX_TILE, Math.max(1, (long) Math.sqrt((double) elements)));
+    }
+
+    // Columns (or rows) of a panel of n, given one tile on the heap and 'perColumn' elements for every column of the
+    // panel. Never wider than a tile, so that factoring the panel stays cheap next to the update.
+    private static int panelWidth(long memory, int n, int tile, long perColumn) {
+        long width = (memory / Double.BYTES - (long) tile * tile) / perColumn;
+
+        return (int) Math.max(1, Math.min(Math.min(tile, n), Math.min(width, (Integer.MAX_VALUE - 8) / n)));
+    }
+
+    // Rows [rowFrom, rowTo) and columns [colFrom, colTo) of m from 'from', packed row-major. With upperOnly, only
+    // the part of each row on or right of the diagonal of m.
+    private static void writeBlock(OffHeapMatrix m, int rowFrom, int rowTo, int colFrom, int colTo, double[] from, boolean upperOnly) {
+        int width = colTo - colFrom;
+        for (int i = rowFrom; i < rowTo; i++) {
+            int skip = upperOnly ? Math.max(0, Math.min(width, i - colFrom)) : 0;
+            if (skip < width) m.write(i, colFrom + skip, from, (i - rowFrom) * width + skip, width - skip);
+        }
+    }
+}
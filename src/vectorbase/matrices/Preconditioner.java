@@ -0,0 +1,8 @@
+package vectorbase.matrices;
+
+// M^-1 for an M that approximates A and is cheap to solve with, applied once or twice per iteration of an
+// iterative solver. Implementations keep whatever they need from the construction, and do not allocate in apply.
+public interface Preconditioner {
+    // z = M^-1 r; z is overwritten.
+    void apply(double[] r, double[] z);
+}
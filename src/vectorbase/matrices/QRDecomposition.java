@@ -0,0 +1,272 @@
+package vectorbase.matrices;
+
+import vectorbase.kernels.Kernels;
+import vectorbase.matrices.vectors.Vector;
+import vectorbase.matrices.vectors.VectorSet;
+
+// AP = QR with Householder reflections, optionally with column pivoting (rank revealing).
+// The factors are kept column by column, every column contiguous, since each reflection works on whole columns:
+// on and above the diagonal is R, below it the reflection vectors (their first element is an implicit 1).
+public class QRDecomposition {
+    private final double[] qr;
+    private final int rowCount;
+    private final int columnCount;
+    private final int steps;
+
+    private final double[] tau;
+    private final int[] pivots;
+    private final int rank;
+
+    public QRDecomposition(Matrix m) {
+        this(m, true);
+    }
+
+    public QRDecomposition(Matrix m, boolean columnPivoting) {
+        this.rowCount = m.getRowCount();
+        this.columnCount = m.getColumnCount();
+        this.steps = Math.min(rowCount, columnCount);
+        this.qr = MatrixMultiplier.transpose(m.data(), rowCount, columnCount);
+        this.tau = new double[steps];
+        this.pivots = new int[columnCount];
+
+        for (int j = 0; j < columnCount; j++) {
+            pivots[j] = j;
+        }
+
+        double[] norms = new double[columnCount];
+        double[] originalNorms = new double[columnCount];
+        if (columnPivoting) {
+            for (int j = 0; j < columnCount; j++) {
+                norms[j] = Kernels.dot(qr, j * rowCount, qr, j * rowCount, rowCount);
+                originalNorms[j] = norms[j];
+            }
+        }
+
+        for (int k = 0; k < steps; k++) {
+            if (columnPivoting) {
+                int best = k;
+                for (int j = k + 1; j < columnCount; j++) {
+                    if (norms[j] > norms[best]) best = j;
+                }
+
+                if (best != k) {
+                    swapColumns(k, best);
+
+                    double tmp = norms[k];
+                    norms[k] = norms[best];
+                    norms[best] = tmp;
+                    tmp = originalNorms[k];
+                    originalNorms[k] = originalNorms[best];
+                    originalNorms[best] = tmp;
+
+                    int index = pivots[k];
+                    pivots[k] = pivots[best];
+                    pivots[best] = index;
+                }
+            }
+
+            tau[k] = reflect(k);
+
+            for (int j = k + 1; j < columnCount; j++) {
+                apply(k, qr, j * rowCount);
+
+                if (columnPivoting) {
+                    // The remaining norm loses the new row of R; recomputed when cancellation makes that inaccurate.
+                    double r = qr[j * rowCount + k];
+                    norms[j] -= r * r;
+                    if (norms[j] <= 1e-8 * originalNorms[j]) {
+                        int from = j * rowCount + k + 1;
+                        norms[j] = Kernels.dot(qr, from, qr, from, rowCount - k - 1);
+                        originalNorms[j] = norms[j];
+                    }
+                }
+            }
+        }
+
+        this.rank = computeRank();
+    }
+
+    private void swapColumns(int c1, int c2) {
+        for (int i = 0; i < rowCount; i++) {
+            double tmp = qr[c1 * rowCount + i];
+            qr[c1 * rowCount + i] = qr[c2 * rowCount + i];
+            qr[c2 * rowCount + i] = tmp;
+        }
+    }
+
+    // Householder reflection that zeroes column k below the diagonal. Returns tau; H = I - tau * v * v^T.
+    private double reflect(int k) {
+        int offset = k * rowCount + k;
+        int length = rowCount - k - 1;
+
+        double alpha = qr[offset];
+        double tailNorm = Math.sqrt(Kernels.dot(qr, offset + 1, qr, offset + 1, length));
+        if (tailNorm == 0) return 0;
+
+        double norm = Math.hypot(alpha, tailNorm);
+        double beta = alpha >= 0 ? -norm : norm;
+
+        Kernels.scale(1 / (alpha - beta), qr, offset + 1, length);
+        qr[offset] = beta;
+
+        return (beta - alpha) / beta;
+    }
+
+    // x = H_k * x for the column of length rowCount at xOffset.
+    private void apply(int k, double[] x, int xOffset) {
+        if (tau[k] == 0) return;
+
+        int v = k * rowCount + k + 1;
+        int length = rowCount - k - 1;
+
+        double w = x[xOffset + k] + Kernels.dot(qr, v, x, xOffset + k + 1, length);
+        double c = -tau[k] * w;
+
+        x[xOffset + k] += c;
+        Kernels.axpy(c, qr, v, x, xOffset + k + 1, length);
+    }
+
+    private int computeRank() {
+        if (steps == 0) return 0;
+
+        double largest = 0;
+        for (int k = 0; k < steps; k++) {
+            largest = Math.max(largest, Math.abs(qr[k * rowCount + k]));
+        }
+        double tolerance = Math.max(rowCount, columnCount) * Math.ulp(largest);
+
+        int rank = 0;
+        for (int k = 0; k < steps; k++) {
+            if (Math.abs(qr[k * rowCount + k]) > tolerance) rank++;
+        }
+
+        return rank;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    // Column k of AP is column getPivots()[k] of A.
+    public int[] getPivots() {
+        return pivots.clone();
+    }
+
+    // Every reflection that is not the identity has determinant -1.
+    double qDeterminant() {
+        double determinant = 1;
+        for (double t : tau) {
+            if (t != 0) determinant = -determinant;
+        }
+
+        return determinant;
+    }
+
+    // Q^T * v, applying the reflections without forming Q.
+    public Vector applyQTranspose(Vector v) {
+        return new Vector(applyQTranspose(toColumn(v)));
+    }
+
+    private double[] applyQTranspose(double[] x) {
+        for (int k = 0; k < steps; k++) {
+            apply(k, x, 0);
+        }
+
+        return x;
+    }
+
+    // Q * v, applying the reflections without forming Q.
+    public Vector applyQ(Vector v) {
+        return new Vector(applyQ(toColumn(v)));
+    }
+
+    // In place, x of rowCount elements.
+    double[] applyQ(double[] x) {
+        for (int k = steps - 1; k >= 0; k--) {
+            apply(k, x, 0);
+        }
+
+        return x;
+    }
+
+    private double[] toColumn(Vector v) {
+        if (v.getDimension() != rowCount) throw new RuntimeException("Vector is not in the dimension of the matrix.");
+
+        double[] x = new double[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            x[i] = v.get(i);
+        }
+
+        return x;
+    }
+
+    // The thin Q: rowCount x min(rowCount, columnCount), orthonormal columns.
+    public Matrix getQ() {
+        double[] columns = new double[steps * rowCount];
+        for (int j = 0; j < steps; j++) {
+            columns[j * rowCount + j] = 1;
+            for (int k = Math.min(j, steps - 1); k >= 0; k--) {
+                apply(k, columns, j * rowCount);
+            }
+        }
+
+        double[] q = MatrixMultiplier.transpose(columns, steps, rowCount);
+        if (rowCount == steps) return new SquareMatrix(rowCount, q);
+
+        return new Matrix(rowCount, steps, q);
+    }
+
+    // min(rowCount, columnCount) x columnCount, upper triangular.
+    public Matrix getR() {
+        double[] r = new double[steps * columnCount];
+        for (int j = 0; j < columnCount; j++) {
+            for (int i = 0; i <= Math.min(j, steps - 1); i++) {
+                r[i * columnCount + j] = qr[j * rowCount + i];
+            }
+        }
+
+        if (steps == columnCount) return new SquareMatrix(steps, r);
+
+        return new Matrix(steps, columnCount, r);
+    }
+
+    // x minimizing |Ax - v|. With rank r < columnCount, the columns after the first r pivots get 0
+    // (a basic solution; without column pivoting that is only reliable for full column rank).
+    public Vector solveLeastSquares(Vector v) {
+        double[] y = applyQTranspose(toColumn(v));
+
+        double[] z = new double[rank];
+        for (int i = rank - 1; i >= 0; i--) {
+            double sum = y[i];
+            for (int j = i + 1; j < rank; j++) {
+                sum -= qr[j * rowCount + i] * z[j];
+            }
+            z[i] = sum / qr[i * rowCount + i];
+        }
+
+        double[] x = new double[columnCount];
+        for (int k = 0; k < rank; k++) {
+            x[pivots[k]] = z[k];
+        }
+
+        return new Vector(x);
+    }
+
+    // Gram-Schmidt of the columns, in their order (without pivoting, full column rank):
+    // column k is q_k scaled by r_kk, or by its sign only when normalized.
+    public VectorSet getOrthogonalColumns(boolean normalized) {
+        Matrix q = getQ();
+
+        Vector[] vectors = new Vector[steps];
+        for (int k = 0; k < steps; k++) {
+            double r = qr[k * rowCount + k];
+            double c = normalized ? Math.signum(r) : r;
+
+            double[] column = q.getColumn(k);
+            Kernels.scale(c, column, 0, column.length);
+            vectors[k] = new Vector(column);
+        }
+
+        return new VectorSet(vectors);
+    }
+}
@@ -0,0 +1,188 @@
+package vectorbase.matrices;
+
+import vectorbase.kernels.Kernels;
+import vectorbase.matrices.vectors.VectorSet;
+
+import java.io.Serial;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Rank, pivot columns and null space of a matrix from a single elimination with partial pivoting.
+// The pivot columns are the first maximal set of linearly independent columns. The echelon form is kept, so the null
+// space only costs the back substitution, on the first call.
+// Entries within rounding residue of the largest element count as zero. The residue of an elimination grows with its
+// row operations, so the tolerance is rowCount * columnCount ulps rather than the max(rowCount, columnCount) of
+// Matrix.solve: that one misses about one rank deficiency in a hundred on small integer matrices.
+public final class RankProfile {
+    // From this many elements to update on, the eliminations of a pivot run on the common pool.
+    // Can be changed with -Dvectorbase.rank.parallel=<n>.
+    static final int PARALLEL_THRESHOLD = Integer.getInteger("vectorbase.rank.parallel", 1 << 16);
+    private static final int ROWS_PER_TASK = 16;
+
+    private final double[] a;
+    private final int rowCount;
+    private final int columnCount;
+    private final double tolerance;
+
+    private final int[] pivotColumns;
+    private int rank;
+
+    // The reduced echelon form, once the null space has been asked for.
+    private boolean reduced;
+
+    private RankProfile(double[] a, int rowCount, int columnCount) {
+        this.a = a;
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        this.pivotColumns = new int[Math.min(rowCount, columnCount)];
+
+        double largest = 0;
+        for (double el : a) {
+            largest = Math.max(largest, Math.abs(el));
+        }
+        this.tolerance = (double) rowCount * columnCount * Math.ulp(largest);
+    }
+
+    static RankProfile of(Matrix m) {
+        RankProfile profile = new RankProfile(m.copyData(), m.getRowCount(), m.getColumnCount());
+        profile.eliminate(false);
+
+        return profile;
+    }
+
+    // Stops at the first column that depends on the ones before it, without reducing the rest of the matrix.
+    static boolean hasIndependentColumns(Matrix m) {
+        if (m.getColumnCount() > m.getRowCount()) return false;
+
+        return new RankProfile(m.copyData(), m.getRowCount(), m.getColumnCount()).eliminate(true);
+    }
+
+    // Forward elimination in place. Returns whether every column has a pivot; with stopAtFreeColumn it returns
+    // false as soon as one does not.
+    private boolean eliminate(boolean stopAtFreeColumn) {
+        int pivotsRow = 0;
+
+        // 'i' is the column index.
+        for (int i = 0; i < columnCount && pivotsRow < rowCount; i++) {
+            int best = pivotsRow;
+            for (int j = pivotsRow + 1; j < rowCount; j++) {
+                if (Math.abs(a[j * columnCount + i]) > Math.abs(a[best * columnCount + i])) best = j;
+            }
+
+            if (Math.abs(a[best * columnCount + i]) <= tolerance) {
+                if (stopAtFreeColumn) return false;
+                continue;
+            }
+            if (best != pivotsRow) swapRows(pivotsRow, best);
+
+            eliminate(pivotsRow, i, pivotsRow + 1, rowCount);
+
+            pivotColumns[pivotsRow] = i;
+            pivotsRow++;
+        }
+
+        rank = pivotsRow;
+        return rank == columnCount;
+    }
+
+    // Clears column 'col' from rows [from, to) with the pivot row, on the common pool if the update is large.
+    private void eliminate(int pivotsRow, int col, int from, int to) {
+        if ((long) (to - from) * (columnCount - col) >= PARALLEL_THRESHOLD && to - from > ROWS_PER_TASK) {
+            ForkJoinPool.commonPool().invoke(new EliminationTask(this, pivotsRow, col, from, to));
+        } else {
+            eliminateRows(pivotsRow, col, from, to);
+        }
+    }
+
+    private void eliminateRows(int pivotsRow, int col, int from, int to) {
+        int pivotOffset = pivotsRow * columnCount;
+        double pivot = a[pivotOffset + col];
+
+        for (int j = from; j < to; j++) {
+            int offset = j * columnCount;
+            double el = a[offset + col];
+            if (el == 0) continue;
+
+            Kernels.axpy(-el / pivot, a, pivotOffset + col + 1, a, offset + col + 1, columnCount - col - 1);
+            // The pivot column is set exactly, not left as a rounding residue.
+            a[offset + col] = 0;
+        }
+    }
+
+    private static final class EliminationTask extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final RankProfile profile;
+        private final int pivotsRow;
+        private final int col;
+        private final int from;
+        private final int to;
+
+        EliminationTask(RankProfile profile, int pivotsRow, int col, int from, int to) {
+            this.profile = profile;
+            this.pivotsRow = pivotsRow;
+            this.col = col;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                profile.eliminateRows(pivotsRow, col, from, to);
+                return;
+            }
+
+            int middle = from + (to - from) / 2;
+            invokeAll(new EliminationTask(profile, pivotsRow, col, from, middle), new EliminationTask(profile, pivotsRow, col, middle, to));
+        }
+    }
+
+    private void swapRows(int r1, int r2) {
+        int offset1 = r1 * columnCount;
+        int offset2 = r2 * columnCount;
+        for (int k = 0; k < columnCount; k++) {
+            double tmp = a[offset1 + k];
+            a[offset1 + k] = a[offset2 + k];
+            a[offset2 + k] = tmp;
+        }
+    }
+
+    // From the echelon form to the reduced one: every pivot scaled to 1 and cleared from the rows above it.
+    private synchronized void reduce() {
+        if (reduced) return;
+
+        for (int r = rank - 1; r >= 0; r--) {
+            int i = pivotColumns[r];
+            int offset = r * columnCount;
+
+            Kernels.scale(1 / a[offset + i], a, offset + i + 1, columnCount - i - 1);
+            a[offset + i] = 1;
+
+            eliminate(r, i, 0, r);
+        }
+
+        reduced = true;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    public int[] getPivotColumns() {
+        return Arrays.copyOf(pivotColumns, rank);
+    }
+
+    public boolean hasIndependentColumns() {
+        return rank == columnCount;
+    }
+
+    // One vector per column that is not a pivot column, as Matrix.getNullSpace.
+    public VectorSet getNullSpace() {
+        reduce();
+
+        return new VectorSet(Matrix.nullSpaceBasis(a, columnCount, getPivotColumns()));
+    }
+}
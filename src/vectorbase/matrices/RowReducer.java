@@ -0,0 +1,216 @@
+package vectorbase.matrices;
+
+import vectorbase.kernels.Kernels;
+
+import java.util.Arrays;
+
+// Elimination kernel that works in place on a scratch copy of the row-major elements.
+// Every row operation on 'a' is repeated on 'b' (if there is one), like in AugmentedMatrix.
+final class RowReducer {
+    private final double[] a;
+    private final int rowCount;
+    private final int columnCount;
+
+    private final double[] b;
+    private final int bColumnCount;
+
+    // Multipliers of the eliminations, rowCount x rowCount (see recordMultipliers).
+    private double[] multipliers;
+    // With the multipliers: the row of the original matrix that each row of 'a' now is.
+    private int[] rowOrder;
+
+    // Entries at or below this (in absolute value) are treated as zero pivots. 0 means exact comparisons.
+    private double tolerance;
+
+    private final int[] pivotColumns;
+    private int rank;
+    private int swaps;
+
+    RowReducer(double[] a, int rowCount, int columnCount, double[] b, int bColumnCount) {
+        this.a = a;
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        this.b = b;
+        this.bColumnCount = bColumnCount;
+        this.pivotColumns = new int[Math.min(rowCount, columnCount)];
+    }
+
+    RowReducer(double[] a, int rowCount, int columnCount) {
+        this(a, rowCount, columnCount, null, 0);
+    }
+
+    // The echelon form then also yields L, with (row-interchanged) A = L * echelon form. The rows of A are in the
+    // order of getRowOrder.
+    void recordMultipliers(double[] l) {
+        this.multipliers = l;
+        this.rowOrder = new int[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            rowOrder[i] = i;
+        }
+    }
+
+    int[] getRowOrder() {
+        return rowOrder;
+    }
+
+    void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    private boolean isZero(double el) {
+        return Math.abs(el) <= tolerance;
+    }
+
+    void reduceToEchelonForm() {
+        int pivotsRow = 0;
+
+        // 'i' is the column index.
+        for (int i = 0; i < columnCount && pivotsRow < rowCount; i++) {
+            if (isZero(a[pivotsRow * columnCount + i])) {
+                // changing pivot to the non-zero element.
+                for (int j = pivotsRow + 1; j < rowCount; j++) {
+                    if (isZero(a[j * columnCount + i])) continue;
+
+                    interchangeRows(pivotsRow, j);
+                    break;
+                }
+
+                // if there is no non-zero element, continue
+                if (isZero(a[pivotsRow * columnCount + i])) continue;
+            }
+
+            eliminateBelow(pivotsRow, i);
+
+            pivotColumns[pivotsRow] = i;
+            pivotsRow++;
+        }
+
+        rank = pivotsRow;
+    }
+
+    void reduceToRowReducedEchelonForm() {
+        reduceToEchelonForm();
+
+        for (int r = 0; r < rank; r++) {
+            int i = pivotColumns[r];
+
+            double pivot = a[r * columnCount + i];
+            if (pivot != 1) {
+                scaleRow(r, i, 1 / pivot);
+                a[r * columnCount + i] = 1;
+            }
+
+            // 'j' is the row index
+            for (int j = 0; j < r; j++) {
+                double el = a[j * columnCount + i];
+                if (el == 0) continue;
+
+                addRowTo(r, j, i, -el);
+                a[j * columnCount + i] = 0;
+            }
+        }
+    }
+
+    // Echelon form with partial pivoting, only used where the exact echelon form is not returned.
+    void reduceWithPartialPivoting() {
+        int pivotsRow = 0;
+
+        for (int i = 0; i < columnCount && pivotsRow < rowCount; i++) {
+            int best = pivotsRow;
+            for (int j = pivotsRow + 1; j < rowCount; j++) {
+                if (Math.abs(a[j * columnCount + i]) > Math.abs(a[best * columnCount + i])) best = j;
+            }
+
+            if (isZero(a[best * columnCount + i])) continue;
+            if (best != pivotsRow) interchangeRows(pivotsRow, best);
+
+            eliminateBelow(pivotsRow, i);
+
+            pivotColumns[pivotsRow] = i;
+            pivotsRow++;
+        }
+
+        rank = pivotsRow;
+    }
+
+    private void eliminateBelow(int pivotsRow, int col) {
+        int pivotOffset = pivotsRow * columnCount;
+        double pivot = a[pivotOffset + col];
+
+        for (int j = pivotsRow + 1; j < rowCount; j++) {
+            int offset = j * columnCount;
+            double el = a[offset + col];
+            if (el == 0) continue;
+
+            double c = -1 * (el / pivot);
+            axpy(c, a, pivotOffset + col + 1, offset + col + 1, columnCount - col - 1);
+            // The pivot column is set exactly, not left as a rounding residue.
+            a[offset + col] = 0;
+
+            if (multipliers != null) multipliers[j * rowCount + pivotsRow] = -c;
+
+            if (b != null) axpy(c, b, pivotsRow * bColumnCount, j * bColumnCount, bColumnCount);
+        }
+    }
+
+    private void interchangeRows(int r1, int r2) {
+        swap(a, r1 * columnCount, r2 * columnCount, columnCount);
+        if (b != null) swap(b, r1 * bColumnCount, r2 * bColumnCount, bColumnCount);
+        if (multipliers != null) {
+            swap(multipliers, r1 * rowCount, r2 * rowCount, rowCount);
+
+            int tmp = rowOrder[r1];
+            rowOrder[r1] = rowOrder[r2];
+            rowOrder[r2] = tmp;
+        }
+
+        swaps++;
+    }
+
+    // Columns before 'from' are already zero in 'a'.
+    private void scaleRow(int r, int from, double c) {
+        scale(c, a, r * columnCount + from, columnCount - from);
+        if (b != null) scale(c, b, r * bColumnCount, bColumnCount);
+    }
+
+    private void addRowTo(int r1, int r2, int from, double c) {
+        axpy(c, a, r1 * columnCount + from, r2 * columnCount + from, columnCount - from);
+        if (b != null) axpy(c, b, r1 * bColumnCount, r2 * bColumnCount, bColumnCount);
+    }
+
+    private static void axpy(double c, double[] m, int from, int to, int length) {
+        Kernels.axpy(c, m, from, m, to, length);
+    }
+
+    private static void scale(double c, double[] m, int offset, int length) {
+        Kernels.scale(c, m, offset, length);
+    }
+
+    private static void swap(double[] m, int offset1, int offset2, int length) {
+        for (int k = 0; k < length; k++) {
+            double tmp = m[offset1 + k];
+            m[offset1 + k] = m[offset2 + k];
+            m[offset2 + k] = tmp;
+        }
+    }
+
+    // Product of the diagonal, with the sign of the row interchanges.
+    double determinant() {
+        if (rank < rowCount) return 0;
+
+        double determinant = swaps % 2 == 0 ? 1 : -1;
+        for (int i = 0; i < rowCount; i++) {
+            determinant *= a[i * columnCount + i];
+        }
+
+        return determinant;
+    }
+
+    int getRank() {
+        return rank;
+    }
+
+    int[] getPivotColumns() {
+        return Arrays.copyOf(pivotColumns, rank);
+    }
+}
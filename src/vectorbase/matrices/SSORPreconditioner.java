@@ -0,0 +1,66 @@
+package vectorbase.matrices;
+
+// Symmetric successive over-relaxation: M = w / (2 - w) * (D / w + L) (D / w)^-1 (D / w + U),
+// with D, L and U the diagonal, strictly lower and strictly upper parts of A. Applying it is a forward and a backward
+// sweep over the rows. Symmetric when A is, so it can be used with conjugate gradients; 0 < w < 2.
+public class SSORPreconditioner implements Preconditioner {
+    private final CSRMatrix a;
+    private final double[] diagonal;
+    private final double omega;
+
+    public SSORPreconditioner(CSRMatrix a, double omega) {
+        if (a.rowCount != a.columnCount) throw new RuntimeException("Only square matrices can be preconditioned.");
+        if (!(omega > 0 && omega < 2)) throw new RuntimeException("Relaxation factor must be between 0 and 2.");
+
+        this.a = a;
+        this.omega = omega;
+        this.diagonal = new double[a.rowCount];
+        for (int i = 0; i < a.rowCount; i++) {
+            diagonal[i] = a.get(i, i);
+            if (diagonal[i] == 0) throw new RuntimeException("Zero on the diagonal at row " + i + ".");
+        }
+    }
+
+    // Symmetric Gauss-Seidel.
+    public SSORPreconditioner(CSRMatrix a) {
+        this(a, 1);
+    }
+
+    public SSORPreconditioner(Matrix m, double omega) {
+        this(CSRMatrix.fromDense(m), omega);
+    }
+
+    @Override
+    public void apply(double[] r, double[] z) {
+        int n = diagonal.length;
+        int[] pointers = a.pointers;
+        int[] indices = a.indices;
+        double[] values = a.values;
+
+        // (D / w + L) y = r, then y = D / w * y: the column indices are sorted, so the lower part comes first in a row.
+        for (int i = 0; i < n; i++) {
+            double sum = r[i];
+            for (int k = pointers[i]; k < pointers[i + 1] && indices[k] < i; k++) {
+                sum -= values[k] * z[indices[k]];
+            }
+            z[i] = sum * omega / diagonal[i];
+        }
+        for (int i = 0; i < n; i++) {
+            z[i] *= diagonal[i] / omega;
+        }
+
+        // (D / w + U) z = y, scaled by (2 - w) / w.
+        for (int i = n - 1; i >= 0; i--) {
+            double sum = z[i];
+            for (int k = pointers[i + 1] - 1; k >= pointers[i] && indices[k] > i; k--) {
+                sum -= values[k] * z[indices[k]];
+            }
+            z[i] = sum * omega / diagonal[i];
+        }
+
+        double c = (2 - omega) / omega;
+        for (int i = 0; i < n; i++) {
+            z[i] *= c;
+        }
+    }
+}
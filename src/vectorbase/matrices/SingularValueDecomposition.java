@@ -0,0 +1,276 @@
+package vectorbase.matrices;
+
+import vectorbase.kernels.Kernels;
+
+// A = U diag(singularValues) V^T, thin: with k = min(rows, columns), U is rows x k and V columns x k.
+// One-sided Jacobi: plane rotations of pairs of columns until all columns are orthogonal; their norms are then the
+// singular values. Accurate down to the small singular values, and every rotation works on two contiguous columns.
+// A tall matrix is first reduced to its square R factor by QR, so the sweeps only run on n x n.
+public class SingularValueDecomposition {
+    private static final int MAX_SWEEPS = 60;
+
+    private final int rowCount;
+    private final int columnCount;
+    private final double[] singularValues;
+    // Column by column, every column contiguous.
+    private final double[] u;
+    private final double[] v;
+    // False for the top-k mode: only the largest singular values are known.
+    private final boolean complete;
+
+    public SingularValueDecomposition(Matrix m) {
+        this.rowCount = m.getRowCount();
+        this.columnCount = m.getColumnCount();
+        this.complete = true;
+
+        int k = Math.min(rowCount, columnCount);
+        this.singularValues = new double[k];
+
+        if (rowCount >= columnCount) {
+            this.u = new double[rowCount * k];
+            this.v = new double[columnCount * k];
+            decompose(m.data(), rowCount, columnCount, singularValues, u, v);
+        } else {
+            // A^T = U' S V'^T, so A = V' S U'^T.
+            this.u = new double[rowCount * k];
+            this.v = new double[columnCount * k];
+            decompose(MatrixMultiplier.transpose(m.data(), rowCount, columnCount), columnCount, rowCount, singularValues, v, u);
+        }
+    }
+
+    private SingularValueDecomposition(int rowCount, int columnCount, double[] singularValues, double[] u, double[] v) {
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        this.singularValues = singularValues;
+        this.u = u;
+        this.v = v;
+        this.complete = false;
+    }
+
+    // a is m x n row-major with m >= n. Fills s (n), u (n columns of m) and v (n columns of n).
+    private static void decompose(double[] a, int m, int n, double[] s, double[] u, double[] v) {
+        double[] columns;
+        QRDecomposition qr = null;
+
+        if (m > n) {
+            // Only the n x n R takes part in the sweeps: A = Q R and R = U_R S V^T give U = Q U_R.
+            qr = new QRDecomposition(new Matrix(m, n, a), false);
+            columns = MatrixMultiplier.transpose(qr.getR().data(), n, n);
+        } else {
+            columns = MatrixMultiplier.transpose(a, m, n);
+        }
+
+        // Either way the columns to orthogonalize are n long.
+        int length = n;
+        double[] rotations = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            rotations[i * n + i] = 1;
+        }
+
+        orthogonalizeColumns(columns, rotations, length, n);
+
+        int[] order = SymmetricEigenDecomposition.descending(norms(columns, length, n), n, false);
+        for (int j = 0; j < n; j++) {
+            int c = order[j];
+            double norm = Math.sqrt(Kernels.dot(columns, c * length, columns, c * length, length));
+            s[j] = norm;
+
+            System.arraycopy(rotations, c * n, v, j * n, n);
+
+            // The left vector of a zero singular value is left zero.
+            if (norm == 0) continue;
+
+            double[] left = new double[m];
+            System.arraycopy(columns, c * length, left, 0, length);
+            Kernels.scale(1 / norm, left, 0, length);
+            if (qr != null) qr.applyQ(left);
+
+            System.arraycopy(left, 0, u, j * m, m);
+        }
+    }
+
+    // Rotates pairs of the n columns (of 'length' elements) until every pair is orthogonal to working precision,
+    // applying the same rotations to the columns of 'rotations'.
+    private static void orthogonalizeColumns(double[] columns, double[] rotations, int length, int n) {
+        double eps = Math.ulp(1.0);
+
+        for (int sweep = 0; sweep < MAX_SWEEPS; sweep++) {
+            boolean rotated = false;
+
+            for (int p = 0; p < n - 1; p++) {
+                for (int q = p + 1; q < n; q++) {
+                    double alpha = Kernels.dot(columns, p * length, columns, p * length, length);
+                    double beta = Kernels.dot(columns, q * length, columns, q * length, length);
+                    double gamma = Kernels.dot(columns, p * length, columns, q * length, length);
+
+                    if (Math.abs(gamma) <= length * eps * Math.sqrt(alpha * beta)) continue;
+                    rotated = true;
+
+                    // The rotation that diagonalizes [[alpha, gamma], [gamma, beta]].
+                    double zeta = (beta - alpha) / (2 * gamma);
+                    double t = (zeta >= 0 ? 1 : -1) / (Math.abs(zeta) + Math.hypot(1, zeta));
+                    double c = 1 / Math.hypot(1, t);
+                    double s = c * t;
+
+                    SymmetricEigenDecomposition.rotate(columns, p * length, q * length, length, c, s);
+                    SymmetricEigenDecomposition.rotate(rotations, p * n, q * n, n, c, s);
+                }
+            }
+
+            if (!rotated) return;
+        }
+
+        throw new RuntimeException("Singular values did not converge.");
+    }
+
+    private static double[] norms(double[] columns, int length, int n) {
+        double[] norms = new double[n];
+        for (int j = 0; j < n; j++) {
+            norms[j] = Kernels.dot(columns, j * length, columns, j * length, length);
+        }
+
+        return norms;
+    }
+
+    // The k largest singular values and their vectors: Lanczos on A^T A (or on A A^T when that is smaller), which only
+    // applies the operator and its transpose to vectors, so it works on large sparse and implicit operators.
+    // Squaring the spectrum only costs accuracy on singular values far below the largest one.
+    public static SingularValueDecomposition largest(LinearOperator a, int k) {
+        int m = a.getRowCount();
+        int n = a.getColumnCount();
+        if (k <= 0 || k > Math.min(m, n)) throw new RuntimeException("Cannot compute " + k + " singular values of a " + m + " x " + n + " operator.");
+
+        boolean wide = m < n;
+        int small = Math.min(m, n);
+        int large = Math.max(m, n);
+
+        double[] scratch = new double[large];
+        LinearOperator gram = new LinearOperator() {
+            @Override
+            public int getRowCount() {
+                return small;
+            }
+
+            @Override
+            public int getColumnCount() {
+                return small;
+            }
+
+            @Override
+            public void apply(double[] x, double[] y) {
+                if (wide) {
+                    a.applyTranspose(x, scratch);
+                    a.apply(scratch, y);
+                } else {
+                    a.apply(x, scratch);
+                    a.applyTranspose(scratch, y);
+                }
+            }
+
+            @Override
+            public void applyTranspose(double[] x, double[] y) {
+                apply(x, y);
+            }
+        };
+
+        SymmetricEigenDecomposition eigen = SymmetricEigenDecomposition.largest(gram, k);
+        double[] eigenvalues = eigen.getEigenvalues();
+
+        // The eigenvectors are the singular vectors on the small side; the other side is A v / s (or A^T u / s).
+        double[] singularValues = new double[k];
+        double[] smallVectors = new double[small * k];
+        double[] largeVectors = new double[large * k];
+        double[] y = new double[large];
+        for (int j = 0; j < k; j++) {
+            singularValues[j] = Math.sqrt(Math.max(eigenvalues[j], 0));
+
+            double[] x = eigen.eigenvector(j);
+            System.arraycopy(x, 0, smallVectors, j * small, small);
+            if (singularValues[j] == 0) continue;
+
+            if (wide) a.applyTranspose(x, y);
+            else a.apply(x, y);
+            Kernels.scale(1 / singularValues[j], y, 0, large);
+            System.arraycopy(y, 0, largeVectors, j * large, large);
+        }
+
+        if (wide) return new SingularValueDecomposition(m, n, singularValues, smallVectors, largeVectors);
+
+        return new SingularValueDecomposition(m, n, singularValues, largeVectors, smallVectors);
+    }
+
+    // In descending order.
+    public double[] getSingularValues() {
+        return singularValues.clone();
+    }
+
+    // rows x k
+    public Matrix getU() {
+        int k = singularValues.length;
+        double[] data = MatrixMultiplier.transpose(u, k, rowCount);
+        if (k == rowCount) return new SquareMatrix(k, data);
+
+        return new Matrix(rowCount, k, data);
+    }
+
+    // columns x k
+    public Matrix getV() {
+        int k = singularValues.length;
+        double[] data = MatrixMultiplier.transpose(v, k, columnCount);
+        if (k == columnCount) return new SquareMatrix(k, data);
+
+        return new Matrix(columnCount, k, data);
+    }
+
+    // Singular values below this are rounding residue of a rank-deficient matrix.
+    private double tolerance() {
+        return Math.max(rowCount, columnCount) * Math.ulp(singularValues[0]);
+    }
+
+    public int getRank() {
+        requireComplete();
+
+        double tolerance = tolerance();
+        int rank = 0;
+        for (double s : singularValues) {
+            if (s > tolerance) rank++;
+        }
+
+        return rank;
+    }
+
+    // Largest over smallest singular value, in the 2-norm; infinite for a rank-deficient matrix.
+    public double getConditionNumber() {
+        requireComplete();
+
+        double smallest = singularValues[singularValues.length - 1];
+        if (smallest <= tolerance()) return Double.POSITIVE_INFINITY;
+
+        return singularValues[0] / smallest;
+    }
+
+    // V S^+ U^T, columns x rows, with the singular values below the rank tolerance treated as zero.
+    // In the top-k mode, the pseudo-inverse of the rank-k approximation.
+    public Matrix getPseudoInverse() {
+        double tolerance = tolerance();
+        double[] pseudoInverse = new double[columnCount * rowCount];
+
+        for (int j = 0; j < singularValues.length; j++) {
+            if (singularValues[j] <= tolerance) continue;
+
+            // Row i gets v_ij / s_j * u_j^T.
+            for (int i = 0; i < columnCount; i++) {
+                double c = v[j * columnCount + i] / singularValues[j];
+                if (c != 0) Kernels.axpy(c, u, j * rowCount, pseudoInverse, i * rowCount, rowCount);
+            }
+        }
+
+        if (rowCount == columnCount) return new SquareMatrix(rowCount, pseudoInverse);
+
+        return new Matrix(columnCount, rowCount, pseudoInverse);
+    }
+
+    private void requireComplete() {
+        if (!complete) throw new RuntimeException("Only the largest singular values were computed.");
+    }
+}
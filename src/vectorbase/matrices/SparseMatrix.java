@@ -0,0 +1,154 @@
+package vectorbase.matrices;
+
+import vectorbase.VectorBase;
+import vectorbase.matrices.vectors.Vector;
+
+// Compressed sparse matrix: for every line of the major axis (rows for CSR, columns for CSC),
+// indices[pointers[line] .. pointers[line + 1]) are the sorted positions of its non-zero elements on the minor axis
+// and values[...] the elements themselves. Memory and time scale with the number of non-zeros.
+public abstract class SparseMatrix extends VectorBase implements LinearOperator {
+    final int rowCount;
+    final int columnCount;
+
+    final int[] pointers;
+    final int[] indices;
+    final double[] values;
+
+    // The arrays are not copied.
+    SparseMatrix(int rowCount, int columnCount, int[] pointers, int[] indices, double[] values, int majorCount) {
+        if (rowCount <= 0 || columnCount <= 0) throw new RuntimeException("Matrix is empty.");
+        if (pointers.length != majorCount + 1) throw new RuntimeException("There must be " + (majorCount + 1) + " pointers.");
+        if (indices.length < pointers[majorCount] || values.length < pointers[majorCount]) throw new RuntimeException("Indices and values must hold " + pointers[majorCount] + " elements.");
+
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        this.pointers = pointers;
+        this.indices = indices;
+        this.values = values;
+    }
+
+    public int getRowCount() {
+        return this.rowCount;
+    }
+
+    public int getColumnCount() {
+        return this.columnCount;
+    }
+
+    public int getNonZeroCount() {
+        return this.pointers[this.pointers.length - 1];
+    }
+
+    public abstract double get(int row, int col);
+
+    public abstract Vector multiplyWith(Vector v);
+
+    public abstract Matrix multiplyWith(Matrix m);
+
+    public abstract SparseMatrix getTranspose();
+
+    public abstract CSRMatrix toCSR();
+
+    public abstract CSCMatrix toCSC();
+
+    @Override
+    public abstract SparseMatrix scaleWith(double c);
+
+    public CSRMatrix multiplyWith(SparseMatrix m) {
+        return this.toCSR().multiplyWith(m.toCSR());
+    }
+
+    public Matrix toDense() {
+        return this.toCSR().toDense();
+    }
+
+    // Element of the line 'major' at 'minor', found by binary search in the sorted indices.
+    double find(int major, int minor) {
+        int low = pointers[major];
+        int high = pointers[major + 1] - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (indices[middle] < minor) low = middle + 1;
+            else if (indices[middle] > minor) high = middle - 1;
+            else return values[middle];
+        }
+
+        return 0;
+    }
+
+    // Swaps the major and minor axis: the compressed rows of a matrix become its compressed columns, in O(nnz).
+    // Returns {pointers, indices} and fills 'transposedValues'.
+    static int[][] transposeCompressed(int majorCount, int minorCount, int[] pointers, int[] indices, double[] values, double[] transposedValues) {
+        int nonZeroCount = pointers[majorCount];
+
+        int[] transposedPointers = new int[minorCount + 1];
+        for (int k = 0; k < nonZeroCount; k++) {
+            transposedPointers[indices[k] + 1]++;
+        }
+        for (int i = 0; i < minorCount; i++) {
+            transposedPointers[i + 1] += transposedPointers[i];
+        }
+
+        int[] next = transposedPointers.clone();
+        int[] transposedIndices = new int[nonZeroCount];
+
+        // Walking the major lines in order keeps the new indices sorted.
+        for (int i = 0; i < majorCount; i++) {
+            for (int k = pointers[i]; k < pointers[i + 1]; k++) {
+                int position = next[indices[k]]++;
+                transposedIndices[position] = i;
+                transposedValues[position] = values[k];
+            }
+        }
+
+        return new int[][] {transposedPointers, transposedIndices};
+    }
+
+    static double[] toArray(Vector v) {
+        double[] array = new double[v.getDimension()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = v.get(i);
+        }
+
+        return array;
+    }
+
+    @Override
+    public SparseMatrix add(VectorBase v) {
+        if (!(v instanceof SparseMatrix m)) throw new RuntimeException("Not a valid sparse matrix.");
+        if (this.rowCount != m.rowCount || this.columnCount != m.columnCount) throw new RuntimeException("Matrices are not in the same dimension.");
+
+        return this.toCSR().add(m.toCSR());
+    }
+
+    @Override
+    public double innerProductWith(VectorBase v) {
+        if (!(v instanceof SparseMatrix m)) throw new RuntimeException("Not a valid sparse matrix.");
+        if (this.rowCount != m.rowCount || this.columnCount != m.columnCount) throw new RuntimeException("Inner product is not defined in these matrices.");
+
+        return this.toCSR().innerProductWith(m.toCSR());
+    }
+
+    @Override
+    public int getDimension() {
+        return this.rowCount * this.columnCount;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+
+        s.append("\n").append(this.rowCount).append("x").append(this.columnCount)
+            .append(", ").append(this.getNonZeroCount()).append(" non-zero elements\n");
+
+        CSRMatrix csr = this.toCSR();
+        for (int i = 0; i < this.rowCount; i++) {
+            for (int k = csr.pointers[i]; k < csr.pointers[i + 1]; k++) {
+                s.append("(").append(i).append(", ").append(csr.indices[k]).append(") ").append(csr.values[k]).append("\n");
+            }
+        }
+
+        return s.toString();
+    }
+}
@@ -8,88 +8,134 @@ public class SquareMatrix extends Matrix {
         super(elements);
     }
 
+    SquareMatrix(int n, double[] data) {
+        super(n, n, data);
+    }
+
+    // Structured square matrices, see Matrix(int, int).
+    SquareMatrix(int n) {
+        super(n, n);
+    }
+
     public SquareMatrix(VectorSet vectorSet) {
         super(vectorSet);
     }
 
-    public double determinantOriginal() {
-        if (this.getRowCount() == 1) return get(0, 0);
+    // Zero-copy view over a row-major n x n array. The caller must not modify the array afterwards.
+    public static SquareMatrix wrap(double[] data, int n) {
+        checkDimensions(data, n, n);
 
-        double determinant = 0;
-        int expansionRow = 0;
+        return new SquareMatrix(n, data);
+    }
 
-        for (int i = 0; i < this.getRowCount(); i++) {
-            double coefficient = get(expansionRow, i);
-            SquareMatrix minor = getMinor(expansionRow, i).toSquareMatrix();
+    // Cofactor expansion, memoized; elimination once the expansion would not fit in memory.
+    public double determinantOriginal() {
+        if (this.getRowCount() > CofactorExpansion.LAPLACE_LIMIT) return determinantFast();
 
-            double cofactor = Math.pow(-1, expansionRow + i) * minor.determinantOriginal();
+        return CofactorExpansion.determinant(data(), this.getRowCount());
+    }
 
-            determinant += cofactor * coefficient;
-        }
+    public double determinantFast() {
+        RowReducer reducer = new RowReducer(copyData(), this.getRowCount(), this.getColumnCount());
+        reducer.reduceWithPartialPivoting();
 
-        return determinant;
+        return reducer.determinant();
     }
 
-    public double determinantFast() {
-        double determinant = 1;
+    public double determinant() {
+        return DerivedResults.get(this, DerivedResults.Key.DETERMINANT, () -> {
+            CholeskyDecomposition cholesky = tryCholesky();
+            if (cholesky != null) return cholesky.determinant();
 
-        int pivotsRow = 0;
-        Matrix m = this;
+            return determinantFast();
+        });
+    }
 
-        // 'i' is the column index.
-        for (int i = 0; i < this.getColumnCount(); i++) {
-            double pivot = m.get(pivotsRow, i);
+    // Computed once; the decomposition itself never changes, so every caller can share it.
+    public LUDecomposition getLUDecomposition() {
+        return DerivedResults.get(this, DerivedResults.Key.LU_DECOMPOSITION, () -> new LUDecomposition(this));
+    }
 
-            if (pivot == 0) {
-                // changing pivot to the non-zero element.
-                for (int j = pivotsRow; j < this.getRowCount(); j++) {
-                    if (m.get(j, i) == 0) continue;
+    public CholeskyDecomposition getCholeskyDecomposition() {
+        if (!this.isSymmetric()) throw new RuntimeException("Matrix is not symmetric.");
 
-                    m = m.interchangeRows(pivotsRow, j);
-                    pivot = m.get(pivotsRow, i);
+        CholeskyDecomposition cholesky = tryCholesky();
+        if (cholesky != null) return cholesky;
 
-                    determinant *= -1;
-                    break;
-                }
+        return new CholeskyDecomposition(this);
+    }
 
-                // if there is no non-zero element, continue
-                if (pivot == 0) continue;
-            }
+    public SymmetricEigenDecomposition getEigenDecomposition() {
+        if (!this.isSymmetric()) throw new RuntimeException("Matrix is not symmetric.");
 
-            // 'j' is the row index
-            for (int j = i + 1; j < this.getRowCount(); j++) {
-                if (m.get(j, i) == 0) continue;
+        return new SymmetricEigenDecomposition(this);
+    }
 
-                double el = m.get(j, i);
-                double c = -1 * (el / pivot);
-                m = m.addRowTo(pivotsRow, j, c);
-            }
+    // Symmetric positive definite: half the work of LU for solve, inverse and determinant.
+    // Null if the matrix is not symmetric or the factorization finds it is not positive definite.
+    private CholeskyDecomposition tryCholesky() {
+        return DerivedResults.get(this, DerivedResults.Key.CHOLESKY_DECOMPOSITION, this::computeCholesky);
+    }
 
-            pivotsRow++;
-            if (pivotsRow == this.getRowCount() - 1) break;
-        }
+    private CholeskyDecomposition computeCholesky() {
+        if (!this.isSymmetric()) return null;
 
+        // A positive diagonal is necessary; checking it first rules out most other matrices in O(n).
         for (int i = 0; i < this.getRowCount(); i++) {
-            determinant *= m.get(i, i);
+            if (!(this.get(i, i) > 0)) return null;
         }
 
-        return determinant;
+        CholeskyDecomposition cholesky = new CholeskyDecomposition(this);
+        return cholesky.isPositiveDefinite() ? cholesky : null;
     }
 
-    public double determinant() { return determinantFast(); }
+    @Override
+    public Solution solve(Vector v) {
+        if (v.getDimension() != this.getRowCount()) throw new RuntimeException("Vector is not in the dimension of the matrix.");
+
+        CholeskyDecomposition cholesky = tryCholesky();
+        if (cholesky != null) return new Solution(cholesky.solve(v), null);
+
+        LUDecomposition lu = getLUDecomposition();
+        if (!lu.isSingular()) return new Solution(lu.solve(v), null);
+
+        // Not through Matrix.solve, which would factor the matrix again only to find it singular.
+        return solveByElimination(v);
+    }
 
     public SquareMatrix inverse() {
-        IdentityMatrix identity = new IdentityMatrix(this.getRowCount());
-        AugmentedMatrix augmented = new AugmentedMatrix(this, identity);
+        return DerivedResults.get(this, DerivedResults.Key.INVERSE, () -> {
+            CholeskyDecomposition cholesky = tryCholesky();
+            if (cholesky != null) return cholesky.inverse();
+
+            return getLUDecomposition().inverse();
+        });
+    }
+
+    // Exact symmetry; stops at the first pair of elements that differ.
+    public boolean isSymmetric() {
+        int n = this.getRowCount();
+        double[] data = data();
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (data[i * n + j] != data[j * n + i]) return false;
+            }
+        }
 
-        AugmentedMatrix rrefAugmented = augmented.getRowReducedEchelonForm();
+        return true;
+    }
 
-        SquareMatrix rref = rrefAugmented.getMatrix1().toSquareMatrix();
-        SquareMatrix inverse = rrefAugmented.getMatrix2().toSquareMatrix();
+    public boolean isPositiveDefinite() {
+        return tryCholesky() != null;
+    }
 
-        if (!(rref.isIdentityMatrix())) throw new RuntimeException("Matrix is not invertible.");
+    // C_ij = (-1)^(i + j) det(minor ij), all of them from one factorization.
+    public SquareMatrix getCofactorMatrix() {
+        return getAdjugate().getTranspose().toSquareMatrix();
+    }
 
-        return inverse;
+    public SquareMatrix getAdjugate() {
+        return CofactorExpansion.adjugate(this);
     }
 
     public double getTrace() {
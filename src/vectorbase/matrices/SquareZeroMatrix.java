@@ -0,0 +1,87 @@
+package vectorbase.matrices;
+
+import vectorbase.VectorBase;
+import vectorbase.matrices.vectors.Vector;
+import vectorbase.matrices.vectors.VectorSet;
+import vectorbase.matrices.vectors.ZeroVector;
+
+// The square ZeroMatrix: a SquareMatrix, so that square products stay square, with the same shortcuts.
+// Stores nothing but its size, like IdentityMatrix.
+public class SquareZeroMatrix extends DiagonalMatrix {
+    public SquareZeroMatrix(int n) {
+        super(n);
+    }
+
+    @Override
+    double getDiagonalElement(int i) {
+        return 0;
+    }
+
+    @Override
+    public Matrix multiplyWith(Matrix m) {
+        if (this.getColumnCount() != m.getRowCount()) throw new RuntimeException("Those matrices cannot be multiplied.");
+
+        return ZeroMatrix.product(this.getRowCount(), m.getColumnCount());
+    }
+
+    @Override
+    Matrix scaleColumnsOf(Matrix a) {
+        return ZeroMatrix.product(a.getRowCount(), this.getColumnCount());
+    }
+
+    @Override
+    public Matrix add(VectorBase v) {
+        return ZeroMatrix.sum(this, v);
+    }
+
+    @Override
+    public double innerProductWith(VectorBase v) {
+        if (!(v instanceof Matrix m)) throw new RuntimeException("Not a valid matrix.");
+        if (this.getRowCount() != m.getRowCount() ||
+            this.getColumnCount() != m.getColumnCount()
+        ) throw new RuntimeException("Inner product is not defined in these matrices.");
+
+        return 0;
+    }
+
+    @Override
+    public SquareZeroMatrix scaleWith(double c) {
+        return this;
+    }
+
+    @Override
+    public double determinantFast() {
+        return 0;
+    }
+
+    @Override
+    public Solution solve(Vector v) {
+        if (v.getDimension() != this.getRowCount()) throw new RuntimeException("Vector is not in the dimension of the matrix.");
+
+        for (int i = 0; i < v.getDimension(); i++) {
+            if (v.get(i) != 0) return new Solution(null, null);
+        }
+
+        return new Solution(new ZeroVector(this.getColumnCount()), getNullSpace());
+    }
+
+    @Override
+    public VectorSet getNullSpace() {
+        return new IdentityMatrix(this.getColumnCount()).toVectorSet();
+    }
+
+    @Override
+    public Matrix getEchelonForm() {
+        return this;
+    }
+
+    @Override
+    public Matrix getRowReducedEchelonForm() {
+        return this;
+    }
+
+    @Override
+    public boolean isIdentityMatrix() {
+        return false;
+    }
+}
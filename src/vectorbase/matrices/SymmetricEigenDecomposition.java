@@ -0,0 +1,425 @@
+package vectorbase.matrices;
+
+import vectorbase.kernels.Kernels;
+import vectorbase.matrices.vectors.Vector;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// A = V diag(values) V^T for a symmetric A: Householder reduction to tridiagonal form, then the implicit QL iteration
+// with Wilkinson shifts on the tridiagonal matrix (the EISPACK tred2 / tql2 pair).
+// The eigenvectors are kept column by column, every column contiguous; a plane rotation then updates two whole columns.
+public class SymmetricEigenDecomposition {
+    // Top-k mode: a Ritz pair is accepted when its residual is below TOLERANCE relative to the largest Ritz value.
+    private static final double TOLERANCE = 1e-10;
+    private static final int MAX_RESTARTS = 1000;
+    // Fixed, so that the same operator always gives the same result.
+    private static final long SEED = 42;
+
+    private final int n;
+    private final double[] values;
+    private final double[] vectors;
+
+    // All eigenvalues, in descending order.
+    public SymmetricEigenDecomposition(SquareMatrix m) {
+        this.n = m.getRowCount();
+
+        double[] d = new double[n];
+        double[] columns = new double[n * n];
+        decompose(m.copyData(), n, d, columns);
+
+        int[] order = descending(d, d.length, false);
+        this.values = new double[n];
+        this.vectors = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            values[i] = d[order[i]];
+            System.arraycopy(columns, order[i] * n, vectors, i * n, n);
+        }
+    }
+
+    private SymmetricEigenDecomposition(int n, double[] values, double[] vectors) {
+        this.n = n;
+        this.values = values;
+        this.vectors = vectors;
+    }
+
+    // The k eigenvalues of largest magnitude of a symmetric operator, in descending order of magnitude, and their
+    // eigenvectors. Thick-restart Lanczos: the operator is only applied to vectors, so it works on sparse and implicit
+    // operators, and at most 'size' vectors of n are kept. When the basis is full, it is shrunk to the best Ritz vectors
+    // and extended again from the residual, until the k wanted pairs have converged.
+    public static SymmetricEigenDecomposition largest(LinearOperator a, int k) {
+        int n = a.getRowCount();
+        if (a.getColumnCount() != n) throw new RuntimeException("Operator is not square.");
+        if (k <= 0 || k > n) throw new RuntimeException("Cannot compute " + k + " eigenvalues of a " + n + " x " + n + " operator.");
+
+        int size = Math.min(n, Math.max(2 * k + 16, 32));
+        int kept = Math.min(size - 1, k + (size - k) / 2);
+
+        // Q, and H = Q^T A Q: A Q = Q H + r e_m^T holds throughout, also right after a restart.
+        double[][] basis = new double[size][];
+        double[] h = new double[size * size];
+        double[] coefficients = new double[size];
+
+        Random random = new Random(SEED);
+        basis[0] = randomDirection(random, basis, 0, n);
+        int m = 1;
+
+        for (int restart = 0; restart <= MAX_RESTARTS; restart++) {
+            double[] w = null;
+            double residual = 0;
+
+            // Extend the basis with Lanczos steps; H is filled column by column from the orthogonalization coefficients.
+            while (true) {
+                int j = m - 1;
+                w = new double[n];
+                a.apply(basis[j], w);
+
+                // Against every vector of the basis, twice: with a restarted basis the column of H is not tridiagonal.
+                Arrays.fill(coefficients, 0);
+                orthogonalize(w, basis, m, coefficients);
+                orthogonalize(w, basis, m, coefficients);
+                for (int i = 0; i < m; i++) {
+                    h[i * size + j] = coefficients[i];
+                    h[j * size + i] = coefficients[i];
+                }
+
+                residual = Math.sqrt(Kernels.dot(w, w));
+                if (residual <= n * Math.ulp(Math.abs(coefficients[j]) + norm(coefficients, m))) {
+                    // The space is invariant: its Ritz pairs are exact. Go on in a new direction only if it is too small.
+                    residual = 0;
+                    if (m >= k || m == n) break;
+
+                    basis[m++] = randomDirection(random, basis, m - 1, n);
+                    continue;
+                }
+
+                if (m == size) break;
+
+                Kernels.scale(1 / residual, w, 0, n);
+                basis[m++] = w;
+            }
+
+            double[] theta = new double[m];
+            double[] s = new double[m * m];
+            double[] projected = new double[m * m];
+            for (int i = 0; i < m; i++) {
+                System.arraycopy(h, i * size, projected, i * m, m);
+            }
+            decompose(projected, m, theta, s);
+
+            int[] order = descending(theta, m, true);
+            double largest = Math.abs(theta[order[0]]);
+
+            // |A x - theta x| = |r| * last element of the eigenvector of H.
+            boolean converged = true;
+            for (int i = 0; i < k; i++) {
+                if (residual * Math.abs(s[order[i] * m + m - 1]) > TOLERANCE * largest) converged = false;
+            }
+
+            if (converged) {
+                double[] values = new double[k];
+                double[] vectors = new double[n * k];
+                ritzVectors(basis, m, s, order, k, vectors, n);
+                for (int i = 0; i < k; i++) {
+                    values[i] = theta[order[i]];
+                }
+
+                return new SymmetricEigenDecomposition(n, values, vectors);
+            }
+
+            // Restart: the best Ritz vectors, with H diagonal on them, then the residual direction.
+            double[] ritz = new double[n * kept];
+            ritzVectors(basis, m, s, order, kept, ritz, n);
+
+            Arrays.fill(h, 0);
+            for (int i = 0; i < kept; i++) {
+                basis[i] = Arrays.copyOfRange(ritz, i * n, (i + 1) * n);
+                h[i * size + i] = theta[order[i]];
+            }
+            for (int i = kept; i < size; i++) {
+                basis[i] = null;
+            }
+
+            Kernels.scale(1 / residual, w, 0, n);
+            basis[kept] = w;
+            m = kept + 1;
+        }
+
+        throw new RuntimeException("Lanczos iteration did not converge.");
+    }
+
+    // The first 'count' Ritz vectors, in 'order': basis times the eigenvectors of H.
+    private static void ritzVectors(double[][] basis, int m, double[] s, int[] order, int count, double[] vectors, int n) {
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < m; j++) {
+                Kernels.axpy(s[order[i] * m + j], basis[j], 0, vectors, i * n, n);
+            }
+        }
+    }
+
+    private static double norm(double[] x, int length) {
+        return Math.sqrt(Kernels.dot(x, 0, x, 0, length));
+    }
+
+    private static double[] randomDirection(Random random, double[][] basis, int count, int n) {
+        double[] q = new double[n];
+        for (int i = 0; i < n; i++) {
+            q[i] = random.nextGaussian();
+        }
+
+        double[] unused = new double[count];
+        orthogonalize(q, basis, count, unused);
+        orthogonalize(q, basis, count, unused);
+        Kernels.scale(1 / Math.sqrt(Kernels.dot(q, q)), q, 0, n);
+
+        return q;
+    }
+
+    // w minus its projections on the first 'count' basis vectors; the projection coefficients are added up.
+    private static void orthogonalize(double[] w, double[][] basis, int count, double[] coefficients) {
+        for (int i = 0; i < count; i++) {
+            double c = Kernels.dot(basis[i], w);
+            Kernels.axpy(-c, basis[i], 0, w, 0, w.length);
+            coefficients[i] += c;
+        }
+    }
+
+    // Eigenvalues (unsorted) and eigenvectors, as contiguous columns, of the symmetric a (n x n, row-major; destroyed).
+    private static void decompose(double[] a, int n, double[] values, double[] columns) {
+        double[] e = new double[n];
+        tridiagonalize(a, values, e, n);
+
+        System.arraycopy(MatrixMultiplier.transpose(a, n, n), 0, columns, 0, n * n);
+        tridiagonalEigen(values, e, columns, n);
+    }
+
+    // Indices of the first 'count' keys, largest first (by magnitude if asked).
+    static int[] descending(double[] keys, int count, boolean magnitude) {
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+
+        Arrays.sort(order, (i, j) -> magnitude ? Double.compare(Math.abs(keys[j]), Math.abs(keys[i])) : Double.compare(keys[j], keys[i]));
+
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = order[i];
+        }
+
+        return result;
+    }
+
+    // Householder reduction of the symmetric v (n x n, row-major) to tridiagonal form (tred2).
+    // On return d is the diagonal, e[1 .. n - 1] the subdiagonal and v the accumulated orthogonal transformation.
+    private static void tridiagonalize(double[] v, double[] d, double[] e, int n) {
+        System.arraycopy(v, (n - 1) * n, d, 0, n);
+
+        for (int i = n - 1; i > 0; i--) {
+            double scale = 0;
+            double h = 0;
+            for (int k = 0; k < i; k++) {
+                scale += Math.abs(d[k]);
+            }
+
+            if (scale == 0) {
+                e[i] = d[i - 1];
+                for (int j = 0; j < i; j++) {
+                    d[j] = v[(i - 1) * n + j];
+                    v[i * n + j] = 0;
+                    v[j * n + i] = 0;
+                }
+            } else {
+                // Householder vector
+                for (int k = 0; k < i; k++) {
+                    d[k] /= scale;
+                    h += d[k] * d[k];
+                }
+
+                double f = d[i - 1];
+                double g = Math.sqrt(h);
+                if (f > 0) g = -g;
+
+                e[i] = scale * g;
+                h = h - f * g;
+                d[i - 1] = f - g;
+                Arrays.fill(e, 0, i, 0);
+
+                // Similarity transformation of the remaining columns
+                for (int j = 0; j < i; j++) {
+                    f = d[j];
+                    v[j * n + i] = f;
+                    g = e[j] + v[j * n + j] * f;
+                    for (int k = j + 1; k <= i - 1; k++) {
+                        g += v[k * n + j] * d[k];
+                        e[k] += v[k * n + j] * f;
+                    }
+                    e[j] = g;
+                }
+
+                f = 0;
+                for (int j = 0; j < i; j++) {
+                    e[j] /= h;
+                    f += e[j] * d[j];
+                }
+
+                double hh = f / (h + h);
+                for (int j = 0; j < i; j++) {
+                    e[j] -= hh * d[j];
+                }
+
+                for (int j = 0; j < i; j++) {
+                    f = d[j];
+                    g = e[j];
+                    for (int k = j; k <= i - 1; k++) {
+                        v[k * n + j] -= f * e[k] + g * d[k];
+                    }
+                    d[j] = v[(i - 1) * n + j];
+                    v[i * n + j] = 0;
+                }
+            }
+
+            d[i] = h;
+        }
+
+        // Accumulate the transformations.
+        for (int i = 0; i < n - 1; i++) {
+            v[(n - 1) * n + i] = v[i * n + i];
+            v[i * n + i] = 1;
+
+            double h = d[i + 1];
+            if (h != 0) {
+                for (int k = 0; k <= i; k++) {
+                    d[k] = v[k * n + i + 1] / h;
+                }
+                for (int j = 0; j <= i; j++) {
+                    double g = 0;
+                    for (int k = 0; k <= i; k++) {
+                        g += v[k * n + i + 1] * v[k * n + j];
+                    }
+                    for (int k = 0; k <= i; k++) {
+                        v[k * n + j] -= g * d[k];
+                    }
+                }
+            }
+
+            for (int k = 0; k <= i; k++) {
+                v[k * n + i + 1] = 0;
+            }
+        }
+
+        for (int j = 0; j < n; j++) {
+            d[j] = v[(n - 1) * n + j];
+            v[(n - 1) * n + j] = 0;
+        }
+        v[(n - 1) * n + n - 1] = 1;
+        e[0] = 0;
+    }
+
+    // Implicit QL with Wilkinson shifts on the tridiagonal matrix d / e[1 .. n - 1] (tql2).
+    // The rotations are accumulated into 'columns' (n columns of n elements, contiguous); d becomes the eigenvalues.
+    private static void tridiagonalEigen(double[] d, double[] e, double[] columns, int n) {
+        for (int i = 1; i < n; i++) {
+            e[i - 1] = e[i];
+        }
+        e[n - 1] = 0;
+
+        double f = 0;
+        double norm = 0;
+        double eps = Math.ulp(1.0);
+
+        for (int l = 0; l < n; l++) {
+            // Find a small subdiagonal element.
+            norm = Math.max(norm, Math.abs(d[l]) + Math.abs(e[l]));
+            int m = l;
+            while (m < n - 1) {
+                if (Math.abs(e[m]) <= eps * norm) break;
+                m++;
+            }
+
+            // If m == l, d[l] is already an eigenvalue; otherwise iterate.
+            int iterations = 0;
+            while (m > l) {
+                if (++iterations > 30 * n) throw new RuntimeException("Eigenvalues did not converge.");
+
+                // Shift
+                double g = d[l];
+                double p = (d[l + 1] - g) / (2 * e[l]);
+                double r = Math.hypot(p, 1);
+                if (p < 0) r = -r;
+
+                d[l] = e[l] / (p + r);
+                d[l + 1] = e[l] * (p + r);
+                double dl1 = d[l + 1];
+                double h = g - d[l];
+                for (int i = l + 2; i < n; i++) {
+                    d[i] -= h;
+                }
+                f += h;
+
+                // Implicit QL transformation
+                p = d[m];
+                double c = 1;
+                double c2 = c;
+                double c3 = c;
+                double el1 = e[l + 1];
+                double s = 0;
+                double s2 = 0;
+
+                for (int i = m - 1; i >= l; i--) {
+                    c3 = c2;
+                    c2 = c;
+                    s2 = s;
+                    g = c * e[i];
+                    h = c * p;
+                    r = Math.hypot(p, e[i]);
+                    e[i + 1] = s * r;
+                    s = e[i] / r;
+                    c = p / r;
+                    p = c * d[i] - s * g;
+                    d[i + 1] = h + s * (c * g + s * d[i]);
+
+                    rotate(columns, i * n, (i + 1) * n, n, c, s);
+                }
+
+                p = -s * s2 * c3 * el1 * e[l] / dl1;
+                e[l] = s * p;
+                d[l] = c * p;
+
+                if (Math.abs(e[l]) <= eps * norm) break;
+            }
+
+            d[l] = d[l] + f;
+            e[l] = 0;
+        }
+    }
+
+    // (x, y) = (c x - s y, s x + c y) on two columns.
+    static void rotate(double[] columns, int x, int y, int length, double c, double s) {
+        for (int k = 0; k < length; k++) {
+            double h = columns[y + k];
+            columns[y + k] = s * columns[x + k] + c * h;
+            columns[x + k] = c * columns[x + k] - s * h;
+        }
+    }
+
+    public double[] getEigenvalues() {
+        return values.clone();
+    }
+
+    // n x count, the eigenvectors as columns in the order of getEigenvalues().
+    public Matrix getEigenvectors() {
+        double[] v = MatrixMultiplier.transpose(vectors, values.length, n);
+        if (values.length == n) return new SquareMatrix(n, v);
+
+        return new Matrix(n, values.length, v);
+    }
+
+    public Vector getEigenvector(int i) {
+        return new Vector(eigenvector(i));
+    }
+
+    double[] eigenvector(int i) {
+        return Arrays.copyOfRange(vectors, i * n, (i + 1) * n);
+    }
+}
@@ -1,7 +1,152 @@
 package vectorbase.matrices;
 
+import vectorbase.VectorBase;
+import vectorbase.matrices.vectors.Vector;
+import vectorbase.matrices.vectors.VectorSet;
+import vectorbase.matrices.vectors.ZeroVector;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+// Stores nothing but its size: products and sums with it are short-circuited.
 public class ZeroMatrix extends Matrix {
+    private volatile double[] dense;
+
     public ZeroMatrix(int rowCount, int columnCount) {
-        super(new double[rowCount][columnCount]);
+        super(rowCount, columnCount);
+    }
+
+    @Override
+    double[] data() {
+        double[] data = this.dense;
+        if (data == null) {
+            data = new double[this.getRowCount() * this.getColumnCount()];
+            this.dense = data;
+        }
+
+        return data;
+    }
+
+    @Override
+    public double get(int row, int col) {
+        Objects.checkIndex(row, this.getRowCount());
+        Objects.checkIndex(col, this.getColumnCount());
+
+        return 0;
+    }
+
+    @Override
+    public double[] getRow(int row) {
+        Objects.checkIndex(row, this.getRowCount());
+
+        return new double[this.getColumnCount()];
+    }
+
+    @Override
+    public double[] getColumn(int col) {
+        Objects.checkIndex(col, this.getColumnCount());
+
+        return new double[this.getRowCount()];
+    }
+
+    @Override
+    public void apply(double[] x, double[] y) {
+        Arrays.fill(y, 0, this.getRowCount(), 0);
+    }
+
+    @Override
+    public void applyTranspose(double[] x, double[] y) {
+        Arrays.fill(y, 0, this.getColumnCount(), 0);
+    }
+
+    @Override
+    public Matrix multiplyWith(Matrix m) {
+        if (this.getColumnCount() != m.getRowCount()) throw new RuntimeException("Those matrices cannot be multiplied.");
+
+        return product(this.getRowCount(), m.getColumnCount());
+    }
+
+    // A zero product of that size. A square one is a SquareZeroMatrix, so that it is a SquareMatrix like every other
+    // square product.
+    static Matrix product(int rowCount, int columnCount) {
+        if (rowCount == columnCount) return new SquareZeroMatrix(rowCount);
+
+        return new ZeroMatrix(rowCount, columnCount);
+    }
+
+    // Either zero type, for the shortcuts.
+    static boolean isZero(Matrix m) {
+        return m instanceof ZeroMatrix || m instanceof SquareZeroMatrix;
+    }
+
+    // 0 + m = m, for ZeroMatrix and SquareZeroMatrix.
+    static Matrix sum(Matrix zero, VectorBase v) {
+        if (!(v instanceof Matrix m)) throw new RuntimeException("Not a valid matrix.");
+        if (zero.getRowCount() != m.getRowCount() ||
+            zero.getColumnCount() != m.getColumnCount()
+        ) throw new RuntimeException("Matrices are not in the same dimension.");
+        // An off-heap matrix can change, so the sum cannot be the matrix itself.
+        if (m instanceof OffHeapMatrix o) return OffHeapMatrix.copyOf(o, o.isShared());
+
+        return m;
+    }
+
+    @Override
+    public Solution solve(Vector v) {
+        if (v.getDimension() != this.getRowCount()) throw new RuntimeException("Vector is not in the dimension of the matrix.");
+
+        for (int i = 0; i < v.getDimension(); i++) {
+            if (v.get(i) != 0) return new Solution(null, null);
+        }
+
+        return new Solution(new ZeroVector(this.getColumnCount()), getNullSpace());
+    }
+
+    @Override
+    public VectorSet getNullSpace() {
+        return new IdentityMatrix(this.getColumnCount()).toVectorSet();
+    }
+
+    @Override
+    public Matrix getEchelonForm() {
+        return this;
+    }
+
+    @Override
+    public Matrix getRowReducedEchelonForm() {
+        return this;
+    }
+
+    @Override
+    public Matrix getTranspose() {
+        return new ZeroMatrix(this.getColumnCount(), this.getRowCount());
+    }
+
+    @Override
+    public Matrix scaleWith(double c) {
+        return this;
+    }
+
+    @Override
+    public Matrix add(VectorBase v) {
+        return sum(this, v);
+    }
+
+    // Square, without building the dense array.
+    @Override
+    public SquareMatrix toSquareMatrix() {
+        if (this.getRowCount() != this.getColumnCount()) throw new RuntimeException("This matrix is not a square matrix.");
+
+        return new SquareZeroMatrix(this.getRowCount());
+    }
+
+    @Override
+    public double innerProductWith(VectorBase v) {
+        if (!(v instanceof Matrix m)) throw new RuntimeException("Not a valid matrix.");
+        if (this.getRowCount() != m.getRowCount() ||
+            this.getColumnCount() != m.getColumnCount()
+        ) throw new RuntimeException("Inner product is not defined in these matrices.");
+
+        return 0;
     }
 }
@@ -0,0 +1,73 @@
+package vectorbase.matrices.vectors;
+
+import vectorbase.matrices.LUDecomposition;
+import vectorbase.matrices.Matrix;
+import vectorbase.matrices.SquareMatrix;
+
+// Converts coordinates relative to one basis into coordinates relative to another, as
+// VectorSet.getRelativeCoordinatesOf(v, to) does. The change-of-basis matrix C^-1 B (B the basis converted from, C the
+// one converted to) is computed once, with a single factorization of C; every conversion is then one product with it.
+// Immutable, so it can be shared between threads.
+public final class CoordinateTransform {
+    private final SquareMatrix transform;
+    // The basis converted to, so that VectorSet can tell whether a transform it kept still applies.
+    private final VectorSet to;
+
+    // From standard coordinates to coordinates relative to 'to', as VectorSet.getRelativeCoordinatesOf(v).
+    public CoordinateTransform(VectorSet to) {
+        this.transform = factor(to).inverse();
+        this.to = to;
+    }
+
+    public CoordinateTransform(VectorSet from, VectorSet to) {
+        SquareMatrix b = basisMatrix(from);
+        LUDecomposition c = factor(to);
+        if (b.getRowCount() != to.getDimension()) throw new RuntimeException("Bases are not in the same dimension.");
+
+        this.transform = c.solve(b).toSquareMatrix();
+        this.to = to;
+    }
+
+    private static LUDecomposition factor(VectorSet basis) {
+        LUDecomposition lu = basisMatrix(basis).getLUDecomposition();
+        if (lu.isSingular()) throw new RuntimeException("Vectors are not a basis.");
+
+        return lu;
+    }
+
+    private static SquareMatrix basisMatrix(VectorSet basis) {
+        if (basis.getSize() != basis.getDimension()) throw new RuntimeException("Vectors are not a basis.");
+
+        return basis.toMatrix().toSquareMatrix();
+    }
+
+    public Vector apply(Vector v) {
+        int n = getDimension();
+        if (v.getDimension() != n) throw new RuntimeException("Vector is not in the dimension of the bases.");
+
+        double[] y = new double[n];
+        this.transform.apply(v.elements(), y);
+
+        return new Vector(y);
+    }
+
+    // Every column of m is converted.
+    public Matrix apply(Matrix m) {
+        if (m.getRowCount() != getDimension()) throw new RuntimeException("Matrix does not have " + getDimension() + " rows.");
+
+        return this.transform.multiplyWith(m);
+    }
+
+    boolean convertsTo(VectorSet basis) {
+        return this.to == basis;
+    }
+
+    public int getDimension() {
+        return this.transform.getRowCount();
+    }
+
+    // The change-of-basis matrix itself.
+    public SquareMatrix toMatrix() {
+        return this.transform;
+    }
+}
@@ -0,0 +1,116 @@
+package vectorbase.matrices.vectors;
+
+import vectorbase.VectorBase;
+import vectorbase.kernels.Kernels;
+
+import java.util.Arrays;
+
+// A vector updated in place, for accumulators that change the same elements many times (weights, sums, residuals).
+// The in-place methods allocate nothing and run on the same kernels as Vector. scaleWith and add still return new
+// immutable vectors; toVector takes a snapshot.
+public class MutableVector extends VectorBase {
+    private final double[] vector;
+
+    public MutableVector(int dimension) {
+        if (dimension <= 0) throw new RuntimeException("Vector is empty.");
+
+        this.vector = new double[dimension];
+    }
+
+    public MutableVector(double... elements) {
+        if (elements.length == 0) throw new RuntimeException("Vector is empty.");
+
+        this.vector = elements.clone();
+    }
+
+    public MutableVector(Vector v) {
+        this.vector = v.elements().clone();
+    }
+
+    public double get(int i) {
+        return this.vector[i];
+    }
+
+    public void set(int i, double value) {
+        this.vector[i] = value;
+    }
+
+    public void fill(double value) {
+        Arrays.fill(this.vector, value);
+    }
+
+    public void scaleInPlace(double c) {
+        Kernels.scale(c, this.vector, 0, this.vector.length);
+    }
+
+    // this += v
+    public void addInPlace(Vector v) {
+        axpyInPlace(1, v);
+    }
+
+    public void addInPlace(MutableVector v) {
+        axpyInPlace(1, v);
+    }
+
+    // this += c * v
+    public void axpyInPlace(double c, Vector v) {
+        double[] x = v.elements();
+        checkDimension(x.length);
+
+        Kernels.axpy(c, x, 0, this.vector, 0, x.length);
+    }
+
+    public void axpyInPlace(double c, MutableVector v) {
+        checkDimension(v.vector.length);
+
+        Kernels.axpy(c, v.vector, 0, this.vector, 0, v.vector.length);
+    }
+
+    private void checkDimension(int dimension) {
+        if (this.vector.length != dimension) throw new RuntimeException("Vectors are not in the same dimension.");
+    }
+
+    // A copy of the current elements.
+    public Vector toVector() {
+        return new Vector(this.vector.clone());
+    }
+
+    @Override
+    public Vector scaleWith(double c) {
+        return new Vector(Kernels.scale(c, this.vector));
+    }
+
+    @Override
+    public Vector add(VectorBase v) {
+        double[] x = elementsOf(v);
+        checkDimension(x.length);
+
+        return new Vector(Kernels.add(this.vector, x));
+    }
+
+    @Override
+    public double innerProductWith(VectorBase v) {
+        double[] x = elementsOf(v);
+        checkDimension(x.length);
+
+        return Kernels.dot(this.vector, x);
+    }
+
+    // The elements of a Vector or a MutableVector, as they are.
+    static double[] elementsOf(VectorBase v) {
+        if (v instanceof Vector v2) return v2.elements();
+        if (v instanceof MutableVector v2) return v2.vector;
+
+        throw new RuntimeException("Not a valid vector.");
+    }
+
+    @Override
+    public int getDimension() {
+        return this.vector.length;
+    }
+
+    @Override
+    public String toString() {
+        return this.toVector().toString();
+    }
+}
@@ -1,7 +1,9 @@
 package vectorbase.matrices.vectors;
 
 import vectorbase.VectorBase;
+import vectorbase.kernels.Kernels;
 import vectorbase.matrices.Matrix;
+import vectorbase.matrices.MatrixExpression;
 
 public class Vector extends VectorBase {
     private final double[] vector;
@@ -15,11 +17,21 @@ public class Vector extends VectorBase {
     public double get(int i) {
         return this.vector[i];
     }
+
+    // Backing array, read-only, for MutableVector.
+    double[] elements() {
+        return this.vector;
+    }
     
     public Matrix toMatrix() {
         return new Matrix(new VectorSet(this));
     }
 
+    // As a column, without copying: A.lazy().multiplyWith(v.lazy()) is A v.
+    public MatrixExpression lazy() {
+        return Matrix.wrap(this.vector, this.vector.length, 1).lazy();
+    }
+
     public boolean isOrthogonalWith(Vector v) {
         return this.innerProductWith(v) == 0;
     }
@@ -31,7 +43,7 @@ public class Vector extends VectorBase {
     public Vector projectionOf(Vector v) {
         double coefficient = this.innerProductWith(v) / v.innerProductWith(v);
 
-        return (Vector) v.scaleWith(coefficient);
+        return v.scaleWith(coefficient);
     }
 
     public Vector projectionOf(VectorSet vectorSet) {
@@ -41,47 +53,31 @@ public class Vector extends VectorBase {
             if (vectorSet.get(i) == null) continue;
 
             Vector proj = this.projectionOf(vectorSet.get(i));
-            result = (Vector) result.add(proj);
+            result = result.add(proj);
         }
 
         return result;
     }
 
     @Override
-    public VectorBase scaleWith(double c) {
-        double[] result = this.vector.clone();
-
-        for (int i = 0; i < this.getDimension(); i++) {
-            result[i] *= c;
-        }
-
-        return new Vector(result);
+    public Vector scaleWith(double c) {
+        return new Vector(Kernels.scale(c, this.vector));
     }
 
     @Override
-    public VectorBase add(VectorBase v) {
-        if (!(v instanceof Vector v2)) throw new RuntimeException("Not a valid vector.");
-        if (this.getDimension() != v2.getDimension()) throw new RuntimeException("Vectors are not in the same dimension.");
-
-        double[] result = this.vector.clone();
-        for (int i = 0; i < this.getDimension(); i++) {
-            result[i] += this.get(i);
-        }
+    public Vector add(VectorBase v) {
+        double[] x = MutableVector.elementsOf(v);
+        if (this.getDimension() != x.length) throw new RuntimeException("Vectors are not in the same dimension.");
 
-        return new Vector(result);
+        return new Vector(Kernels.add(this.vector, x));
     }
 
     @Override
     public double innerProductWith(VectorBase v) {
-        if (!(v instanceof Vector v2)) throw new RuntimeException("Not a valid vector.");
-        if (this.getDimension() != v2.getDimension()) throw new RuntimeException("Vectors are not in the same dimension.");
+        double[] x = MutableVector.elementsOf(v);
+        if (this.getDimension() != x.length) throw new RuntimeException("Vectors are not in the same dimension.");
 
-        double result = 0;
-        for (int i = 0; i < this.getDimension(); i++) {
-            result += this.get(i) * v2.get(i);
-        }
-
-        return result;
+        return Kernels.dot(this.vector, x);
     }
 
     @Override
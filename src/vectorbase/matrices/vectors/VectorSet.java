@@ -2,6 +2,8 @@ package vectorbase.matrices.vectors;
 
 import vectorbase.matrices.IdentityMatrix;
 import vectorbase.matrices.Matrix;
+import vectorbase.matrices.QRDecomposition;
+import vectorbase.matrices.RankProfile;
 import vectorbase.matrices.Solution;
 import vectorbase.matrices.SquareMatrix;
 
@@ -11,11 +13,15 @@ import java.util.Iterator;
 
 public class VectorSet {
     private final Vector[] vectors;
+    // Built once: the set never changes, so the matrix and what it caches (see Matrix) are shared by every call.
+    private volatile Matrix matrix;
+    // The last transform to another basis, reused while getRelativeCoordinatesOf(v, other) is called with the same one.
+    private volatile CoordinateTransform transform;
 
     public VectorSet(Vector... vectors) {
         if (vectors.length == 0) throw new RuntimeException("Vector set is empty.");
 
-        this.vectors = vectors;
+        this.vectors = vectors.clone();
     }
 
     public Vector get(int i) { return vectors[i]; }
@@ -29,48 +35,35 @@ public class VectorSet {
     }
     
     public Matrix toMatrix() {
-        if (this.getDimension() == this.getSize()) return (new Matrix(this)).toSquareMatrix();
-        return new Matrix(this);
+        Matrix m = this.matrix;
+        if (m == null) {
+            m = this.getDimension() == this.getSize() ? (new Matrix(this)).toSquareMatrix() : new Matrix(this);
+            this.matrix = m;
+        }
+
+        return m;
     }
 
     public boolean isLinearlyIndependent() {
-        return this.toMatrix().getNullSpace().getSize() == 0;
+        return this.toMatrix().hasLinearlyIndependentColumns();
     }
 
+    // The vectors at the pivot columns: the first maximal linearly independent subset, in order.
     public VectorSet getBasis() {
-        Matrix rref = this.toMatrix().getRowReducedEchelonForm();
-
-        boolean[] pivots = new boolean[rref.getColumnCount()];
-        int pivotsCount = 0;
-        for (int i = 0; i < rref.getColumnCount(); i++) {
-            for (int j = 0; j < rref.getRowCount(); j++) {
-                if (rref.get(j, i) == 0) continue;
-                if (rref.get(j, i) == 1) {
-                    pivots[i] = true;
-                    pivotsCount++;
-                    continue;
-                }
-
-                if (pivots[i] && rref.get(j, i) != 0) {
-                    pivots[i] = false;
-                    pivotsCount--;
-                    break;
-                }
-            }
-        }
+        int[] pivotColumns = getRankProfile().getPivotColumns();
 
-        Vector[] basis = new Vector[pivotsCount];
-        int basisIndex = 0;
-        for (int i = 0; i < pivots.length; i++) {
-            if (!(pivots[i])) continue;
-
-            basis[basisIndex] = this.get(i);
-            basisIndex++;
+        Vector[] basis = new Vector[pivotColumns.length];
+        for (int i = 0; i < pivotColumns.length; i++) {
+            basis[i] = this.get(pivotColumns[i]);
         }
 
         return new VectorSet(basis);
     }
 
+    public RankProfile getRankProfile() {
+        return this.toMatrix().getRankProfile();
+    }
+
     public VectorSet getStandardBasis() {
         VectorSet basis = this.getBasis();
 
@@ -78,53 +71,34 @@ public class VectorSet {
     }
 
     public VectorSet getOrthogonalBasis() {
-        VectorSet basis = getBasis();
-
-        Vector[] orthogonalVectors = new Vector[basis.getSize()];
-        orthogonalVectors[0] = basis.get(0);
-
-        for (int i = 1; i < basis.getSize(); i++) {
-            Vector v = basis.get(i);
-            Vector proj = v.projectionOf(new VectorSet(orthogonalVectors));
-
-            orthogonalVectors[i] = (Vector) v.add(proj.scaleWith(-1));
-        }
-
-        return new VectorSet(orthogonalVectors);
+        return new QRDecomposition(getBasis().toMatrix(), false).getOrthogonalColumns(false);
     }
 
     public VectorSet getOrthonormalBasis() {
-        VectorSet orthogonalBasis = getOrthogonalBasis();
-
-        Vector[] orthonormalVectors = new Vector[orthogonalBasis.getSize()];
-        for (int i = 0; i < orthogonalBasis.getSize(); i++) {
-            Vector v = orthogonalBasis.get(i);
-            Vector orthonormal = (Vector) v.scaleWith(1 / v.norm());
-
-            orthonormalVectors[i] = orthonormal;
-        }
-
-        return new VectorSet(orthonormalVectors);
+        return new QRDecomposition(getBasis().toMatrix(), false).getOrthogonalColumns(true);
     }
 
     public Vector getRelativeCoordinatesOf(Vector v) {
-        SquareMatrix changeOfCoordinatesMatrix = (SquareMatrix) this.toMatrix();
+        SquareMatrix changeOfCoordinatesMatrix = this.toMatrix().toSquareMatrix();
 
         Solution solution = changeOfCoordinatesMatrix.solve(v);
 
         return solution.solutionVector();
     }
 
+    // v in coordinates relative to this basis, converted to coordinates relative to otherSystem.
     public Vector getRelativeCoordinatesOf(Vector v, VectorSet otherSystem) {
-        // B is this, C is otherSystem.
-        SquareMatrix changeOfCoordinatesMatrixB = (SquareMatrix) this.toMatrix();
-        SquareMatrix changeOfCoordinatesMatrixC = (SquareMatrix) otherSystem.toMatrix();
-
-        Matrix changeOfCoordinatesMatrixCToB = changeOfCoordinatesMatrixB.inverse().multiplyWith(changeOfCoordinatesMatrixC);
+        return getTransformTo(otherSystem).apply(v);
+    }
 
-        Solution solution = changeOfCoordinatesMatrixCToB.solve(v);
+    public CoordinateTransform getTransformTo(VectorSet otherSystem) {
+        CoordinateTransform t = this.transform;
+        if (t == null || !t.convertsTo(otherSystem)) {
+            t = new CoordinateTransform(this, otherSystem);
+            this.transform = t;
+        }
 
-        return solution.solutionVector();
+        return t;
     }
 
     public String toString() {